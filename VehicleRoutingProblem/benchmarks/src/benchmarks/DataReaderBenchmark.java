@@ -0,0 +1,51 @@
+package benchmarks;
+
+import objects.LoadTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.DataReader;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing an instance file with the line based reader and with the memory-mapped reader.
+ * Run with {@code -prof gc} to report the allocation rate alongside throughput and average time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class DataReaderBenchmark {
+
+    @Param({"problem1", "problem7", "uniform-1000", "uniform-10000", "uniform-100000", "uniform-1000000"})
+    public String instance;
+
+    private String filePath;
+
+    @Setup
+    public void setUp() {
+        filePath = Instances.resolve(instance).toString();
+    }
+
+    @Benchmark
+    public double[][][] readFile() throws IOException {
+        return DataReader.readFile(filePath);
+    }
+
+    @Benchmark
+    public LoadTable readFileMapped() throws IOException {
+        return DataReader.readFileMapped(filePath);
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import helpers.Helper;
+import objects.Driver;
+import objects.Load;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.DataReader;
+import service.Solution;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures evaluating the cost of every route of a solved instance with {@link Helper#getTotalDistance(List)},
+ * as the result output does. Run with {@code -prof gc} to report the allocation rate alongside throughput and
+ * average time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class HelperBenchmark {
+
+    @Param({"problem1", "problem7", "uniform-1000", "uniform-10000", "uniform-100000", "uniform-1000000"})
+    public String instance;
+
+    private final Helper helper = new Helper();
+    private List<List<Load>> routes;
+
+    @Setup
+    public void setUp() throws IOException {
+        Solution solution = new Solution(DataReader.readFileMapped(Instances.resolve(instance).toString()));
+        routes = new ArrayList<>();
+        for (Driver driver : solution.solve())
+            routes.add(driver.getLoads());
+    }
+
+    @Benchmark
+    public double getTotalDistance() {
+        double total = 0;
+        for (List<Load> route : routes)
+            total += helper.getTotalDistance(route);
+        return total;
+    }
+}
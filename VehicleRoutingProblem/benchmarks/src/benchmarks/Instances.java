@@ -0,0 +1,54 @@
+package benchmarks;
+
+import service.InstanceGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Resolves the instance names used as benchmark parameters to files.
+ * A name such as {@code problem7} refers to a bundled file in the training data directory, which is read from the
+ * {@code vrp.trainingData} system property and defaults to {@code src/TrainingData}, relative to the
+ * VehicleRoutingProblem directory the benchmarks are run from. A name such as {@code uniform-100000} or
+ * {@code clustered-100000} refers to an instance of that many loads written by {@link InstanceGenerator} with that
+ * distribution; it is written once to the temporary directory and reused by later runs.
+ * This class is not meant to be instantiated or subclassed.
+ */
+final class Instances {
+    private static final long SEED = 20231023L;
+
+    // Prevent instantiation
+    private Instances() {
+        throw new AssertionError("Cannot instantiate benchmarks.Instances class");
+    }
+
+    /**
+     * Returns the file holding the named instance, generating it first if it is synthetic and not yet on disk.
+     *
+     * @param name The instance name.
+     * @return The path of the instance file.
+     */
+    static Path resolve(String name) {
+        int dash = name.lastIndexOf('-');
+        if (dash < 0)
+            return Path.of(System.getProperty("vrp.trainingData", "src/TrainingData"), name + ".txt");
+        InstanceGenerator.Distribution distribution = InstanceGenerator.Distribution.parse(name.substring(0, dash));
+        int loads = Integer.parseInt(name.substring(dash + 1));
+        Path file = Path.of(System.getProperty("java.io.tmpdir"), "vrp-benchmark-" + name + ".txt");
+        if (!Files.exists(file))
+            write(new InstanceGenerator(distribution, SEED), loads, file);
+        return file;
+    }
+
+    private static void write(InstanceGenerator generator, int loads, Path file) {
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        try {
+            generator.write(loads, partial);
+            Files.move(partial, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
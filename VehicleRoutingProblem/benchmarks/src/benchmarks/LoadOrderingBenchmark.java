@@ -0,0 +1,68 @@
+package benchmarks;
+
+import objects.Driver;
+import objects.LoadTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.DataReader;
+import service.LoadOrdering;
+import service.Solution;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures computing each load ordering on its own and the greedy construction run in that order.
+ * The cost each ordering leads to is printed with the instance once per fork; {@code Main --order} reports it as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class LoadOrderingBenchmark {
+
+    @Param({"problem1", "problem7", "uniform-10000", "clustered-10000", "uniform-100000"})
+    public String instance;
+
+    @Param({"depot", "angle", "farthest", "cost"})
+    public String ordering;
+
+    private Solution solution;
+    private LoadTable table;
+    private LoadOrdering loadOrdering;
+    private int[] loadIndices;
+
+    @Setup
+    public void setUp() throws IOException {
+        table = DataReader.readFileMapped(Instances.resolve(instance).toString());
+        solution = new Solution(table);
+        loadOrdering = LoadOrdering.forName(ordering);
+        loadIndices = IntStream.range(0, table.size()).toArray();
+        List<Driver> drivers = solution.solve(loadOrdering);
+        System.out.printf("%n%s, %s order: %d drivers, total cost %.2f%n", instance, ordering, drivers.size(),
+                solution.getTotalCost(drivers));
+    }
+
+    @Benchmark
+    public int[] order() {
+        return loadOrdering.order(table, loadIndices);
+    }
+
+    @Benchmark
+    public List<Driver> solve() {
+        return solution.solve(loadOrdering);
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import objects.Driver;
+import objects.Load;
+import objects.LoadTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.DataReader;
+import service.Solution;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the greedy construction as a whole and the driver scan it performs for every load.
+ * The scan is probed with loads held out of the plan, against the plan built over the other loads, as the construction
+ * meets them: a load already in the plan would find its own driver's route ending nearby.
+ * Run with {@code -prof gc} to report the allocation rate alongside throughput and average time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class SolutionBenchmark {
+    // One load in this many is held out of the partial plan and used as a probe
+    private static final int HOLD_OUT_EVERY = 10;
+
+    @Param({"problem1", "problem7", "uniform-1000", "uniform-10000", "uniform-100000", "uniform-1000000"})
+    public String instance;
+
+    private Solution solution;
+    private Solution partial;
+    private List<Load> probes;
+    private List<Driver> drivers;
+    private int nextProbe;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LoadTable table = DataReader.readFileMapped(Instances.resolve(instance).toString());
+        solution = new Solution(table);
+        int[] kept = new int[table.size() - (table.size() + HOLD_OUT_EVERY - 1) / HOLD_OUT_EVERY];
+        probes = new ArrayList<>();
+        for (int i = 0, k = 0; i < table.size(); i++) {
+            if (i % HOLD_OUT_EVERY == 0)
+                probes.add(table.toLoad(i));
+            else
+                kept[k++] = i;
+        }
+        partial = new Solution(table, kept);
+    }
+
+    /**
+     * Builds the partial plan anew, so no iteration probes drivers left over from an earlier one.
+     */
+    @Setup(Level.Iteration)
+    public void buildPartialPlan() {
+        drivers = partial.solve();
+        nextProbe = 0;
+        // Indexes the new plan's drivers up front rather than in the first measured probe
+        solution.checkIfExistingDriverFits(drivers, probes.get(0));
+    }
+
+    @Benchmark
+    public List<Driver> solve() {
+        return solution.solve();
+    }
+
+    @Benchmark
+    public Integer checkIfExistingDriverFits() {
+        Load probe = probes.get(nextProbe);
+        nextProbe = nextProbe + 1 == probes.size() ? 0 : nextProbe + 1;
+        return solution.checkIfExistingDriverFits(drivers, probe);
+    }
+}
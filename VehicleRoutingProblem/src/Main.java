@@ -1,9 +1,31 @@
 import objects.Driver;
+import service.AnytimeSolver;
+import service.BatchRunner;
+import service.BinaryInstanceFormat;
 import service.DataReader;
+import service.ExactSolver;
+import service.InstanceGenerator;
+import service.LoadOrdering;
+import service.MultiStartSolver;
+import service.ResultWriter;
+import service.ScalingHarness;
+import service.SectorSolver;
 import service.Solution;
+import service.SolverServer;
+import service.SolverStrategy;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * The Main class is the entry point for this application, which involves reading a data file containing
@@ -15,7 +37,7 @@ public class Main {
 
     /**
      * Main method which serves as the entry point of the application.
-     * It expects a single command-line argument: the path to the data file.
+     * It expects the path to the data file as its last command-line argument, optionally preceded by options.
      * <p>
      * The method performs the following operations:
      * 1. Validates the presence of the file path argument.
@@ -24,28 +46,348 @@ public class Main {
      * 4. Invokes the solution logic to assign drivers to loads.
      * 5. Outputs the results of the assignment.
      * <p>
+     * Supported options:
+     * --reader text|mapped  Selects how a text file is parsed: line by line (default) or by scanning the memory-mapped file.
+     * Files in the binary instance format, recognised by their extension or magic bytes, are always mapped directly.
+     * --storage heap|offheap       Where the loads are held: in heap arrays (default) or in direct buffers outside the heap,
+     *                               so heap use stays flat however many loads there are. Binary files are always used in place.
+     * --strategy greedy|savings|exact  Selects the construction: the nearest driver greedy (default), Clarke-Wright savings,
+     *                               or the branch-and-bound search for instances of at most 64 loads; see {@link SolverStrategy}.
+     *   --exact-ms <ms>             With the exact strategy, the time the search may take before it stops and reports the
+     *                               gap to the proven lower bound, 10 seconds by default. Takes --threads as well.
+     * --order depot|angle|farthest|cost  With the greedy strategy, the order in which loads are taken: nearest to the depot
+     *                               (default), sweeping around the depot, farthest first or costliest alone first; see {@link LoadOrdering}.
+     * --sectors <n>                 Splits the loads into n sectors around the depot, solves them in parallel with the greedy
+     *                               construction and repairs routes across sector boundaries; see {@link SectorSolver}.
+     *   --threads <n>               The number of sectors solved at the same time, all available processors by default.
+     * --sector-report <n,n,...>     Instead of printing routes, compares the cost and wall time of solving the instance
+     *                               whole with decomposing it into each given number of sectors.
+     * --starts <n>                  With the greedy strategy, runs n randomized constructions in parallel and keeps the cheapest; see {@link MultiStartSolver}.
+     *   --seed <seed>               The base seed of the randomized constructions, 0 by default.
+     *   --threads <n>               The number of constructions run at the same time, all available processors by default.
+     * --improve-ms <ms>             Runs the local search improvement phase after the construction, for at most this long.
+     * --deadline-ms <ms>            Instead of a single construction, searches for at most this long after a first
+     *                               linear-time dispatch pass and prints the best assignment found; see
+     *                               {@link AnytimeSolver}. Takes --seed for the restarts.
+     *   --convergence <file>        Writes every improvement found, with its time and cost, to this CSV file.
+     * --improve-iterations <n>      Limits the improvement phase to n rounds; on its own it runs without a time limit.
+     * --format text|csv|binary      The format the routes are written in, plain text lines of load numbers by default;
+     *                               see {@link ResultWriter}.
+     * --output <file>               Writes the routes to this file instead of the standard output.
+     * --summary true|false          Whether plain text ends with the total cost, driver count and longest route as
+     *                               {@code #} comment lines; CSV and binary always end with them.
+     * <p>
+     * Other modes, selected instead of a file path:
+     * --convert <text file> [<binary file>]  Converts a text instance to the binary format; the binary file defaults to
+     *                                        the text file's path with the {@code .vrpb} extension.
+     * --batch <directory or glob>            Solves every instance found in parallel; see {@link BatchRunner}.
+     *   --out <directory>                    Where the per instance results are written, {@code batch-results} by default.
+     *   --threads <n>                        The number of worker threads, all available processors by default.
+     * --generate <loads>                     Writes a synthetic instance; see {@link InstanceGenerator}.
+     *   --out <file>                         The file written, {@code generated-<loads>.txt} by default.
+     *   --distribution uniform|clustered|ring  How the locations are spread, uniform by default.
+     *   --seed <seed>                        The seed of the instance, 0 by default.
+     * --scale <loads,loads,...>              Solves a generated instance of every size and reports time, heap, drivers
+     *                                        and cost; see {@link ScalingHarness}. Takes --distribution and --seed as well.
+     *   --baseline <file>                    Compares against this baseline and exits with status 2 on a regression.
+     *   --write-baseline <file>              Stores the measurements as the new baseline instead.
+     *   --warm-up <n>                        The number of untimed solves of every instance first, 2 by default.
+     *   --runs <n>                           The number of timed solves of every instance, 5 by default; the median
+     *                                        solve time is reported.
+     *   --time-tolerance <fraction>          The allowed relative increase in solve time, 0.5 by default.
+     *   --cost-tolerance <fraction>          The allowed relative increase in total cost, 0 by default.
+     * --serve <port>|stdin                   Keeps the solver running and answers instances sent to this port on the
+     *                                        loopback interface, or framed on the standard input; see {@link SolverServer}.
+     *                                        Takes --strategy as well.
+     *   --max-concurrent <n>                 The number of requests in progress at the same time, all available
+     *                                        processors by default.
+     *   --warm-up true|false                 Whether generated instances are solved first to compile the solver, true by default.
+     * <p>
      * If any step fails, especially the file reading, the method informs the user and prints the stack trace.
      *
-     * @param args Command-line arguments, expects only one argument representing the file path.
+     * @param args Command-line arguments: options followed by the file path.
      * @throws IOException If there's an error in reading the file.
      */
     public static void main(String[] args) throws IOException {
-        if (args.length == 0) {
+        Map<String, String> options = new HashMap<>();
+        int argIndex = 0;
+        while (argIndex < args.length && args[argIndex].startsWith("--")) {
+            String option = args[argIndex++].substring(2);
+            if (option.equals("convert")) {
+                convert(Arrays.copyOfRange(args, argIndex, args.length));
+                return;
+            }
+            if (argIndex >= args.length) {
+                System.out.println("Error: Missing value for option --" + option);
+                System.exit(1);
+            }
+            options.put(option, args[argIndex++]);
+        }
+
+        if (options.containsKey("batch")) {
+            runBatch(options);
+            return;
+        }
+        if (options.containsKey("generate")) {
+            generate(options);
+            return;
+        }
+        if (options.containsKey("scale")) {
+            runScaling(options);
+            return;
+        }
+        if (options.containsKey("serve")) {
+            serve(options);
+            return;
+        }
+
+        if (argIndex >= args.length) {
             System.out.println("Error: No file path provided. Please provide the file path as an argument.");
             System.exit(1);
         }
-
-        String filePath = args[0];
+        String filePath = args[argIndex];
+        String reader = options.getOrDefault("reader", "text");
 
 
         try {
-            double[][][] testData = DataReader.readFile(filePath);
-            Solution s = new Solution(testData);
-            List<Driver> drivers = s.solve();
-            s.printResult(drivers);
+            Solution s;
+            String storage = options.getOrDefault("storage", "heap");
+            if (!storage.equals("heap") && !storage.equals("offheap")) {
+                System.out.println("Error: Unknown storage " + storage + ", expected heap or offheap");
+                System.exit(1);
+                return;
+            }
+            boolean offHeap = storage.equals("offheap");
+            if (BinaryInstanceFormat.isBinary(filePath)) {
+                s = new Solution(BinaryInstanceFormat.read(filePath));
+            } else if (reader.equals("mapped")) {
+                s = new Solution(DataReader.readFileMapped(filePath, offHeap));
+            } else if (reader.equals("text") && offHeap) {
+                s = new Solution(DataReader.readFileTable(filePath, true));
+            } else if (reader.equals("text")) {
+                double[][][] testData = DataReader.readFile(filePath);
+                s = new Solution(testData);
+            } else {
+                System.out.println("Error: Unknown reader " + reader + ", expected text or mapped");
+                System.exit(1);
+                return;
+            }
+            String strategy = options.getOrDefault("strategy", "greedy");
+            SolverStrategy solver;
+            try {
+                solver = SolverStrategy.forName(strategy);
+                if (strategy.equals("greedy") && options.containsKey("order")) {
+                    LoadOrdering ordering = LoadOrdering.forName(options.get("order"));
+                    solver = solution -> solution.solve(ordering);
+                }
+                if (strategy.equals("exact")) {
+                    solver = new ExactSolver(Long.parseLong(options.getOrDefault("exact-ms",
+                            String.valueOf(ExactSolver.DEFAULT_TIME_LIMIT_MILLIS))), threadCount(options));
+                    if (s.getLoadCount() > ExactSolver.MAX_LOADS)
+                        throw new IllegalArgumentException("The exact strategy handles at most " + ExactSolver.MAX_LOADS
+                                + " loads, the instance has " + s.getLoadCount());
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println("Error: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+            if (options.containsKey("sector-report")) {
+                int[] sectorCounts = Arrays.stream(options.get("sector-report").split(",")).map(String::trim)
+                        .mapToInt(Integer::parseInt).toArray();
+                SectorSolver.printReport(s, sectorCounts, threadCount(options), System.out);
+                return;
+            }
+            List<Driver> drivers;
+            if (options.containsKey("deadline-ms")) {
+                drivers = solveAnytime(s, options);
+            } else if (options.containsKey("sectors")) {
+                drivers = new SectorSolver(Integer.parseInt(options.get("sectors")), threadCount(options)).solve(s);
+            } else if (strategy.equals("greedy") && options.containsKey("starts")) {
+                drivers = new MultiStartSolver(s, Integer.parseInt(options.get("starts")),
+                        Long.parseLong(options.getOrDefault("seed", "0")), threadCount(options)).solve();
+            } else {
+                drivers = solver.solve(s);
+            }
+            if (options.containsKey("improve-ms") || options.containsKey("improve-iterations")) {
+                drivers = s.improve(drivers, Long.parseLong(options.getOrDefault("improve-ms", String.valueOf(Long.MAX_VALUE / 1_000_000L))),
+                        Long.parseLong(options.getOrDefault("improve-iterations", String.valueOf(Long.MAX_VALUE))));
+            }
+            writeResult(drivers, options);
         } catch (IOException e) {
             System.out.println("Error reading file: " + e.getMessage());
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Searches for the time given by the --deadline-ms option and writes the convergence file if one is requested.
+     *
+     * @param s       The problem instance.
+     * @param options The parsed command-line options.
+     * @return The drivers of the best assignment found.
+     * @throws IOException If the convergence file cannot be written.
+     */
+    private static List<Driver> solveAnytime(Solution s, Map<String, String> options) throws IOException {
+        AnytimeSolver anytime = new AnytimeSolver(s, Long.parseLong(options.getOrDefault("seed", "0")));
+        AnytimeSolver.Snapshot best = anytime.solve(Long.parseLong(options.get("deadline-ms")));
+        if (options.containsKey("convergence")) {
+            StringBuilder csv = new StringBuilder("elapsed_ms,timestamp_ms,cost,drivers,stage\n");
+            for (AnytimeSolver.Snapshot snapshot : anytime.getHistory()) {
+                csv.append(String.format(Locale.ROOT, "%.3f,%d,%.6f,%d,%s%n", snapshot.getElapsedNanos() / 1e6,
+                        snapshot.getTimestampMillis(), snapshot.getCost(), snapshot.getDrivers().size(), snapshot.getStage()));
+            }
+            Files.writeString(Path.of(options.get("convergence")), csv);
+        }
+        return best.getDrivers();
+    }
+
+    /**
+     * Writes the routes in the format selected by the --format and --summary options, to the --output file or to the
+     * standard output.
+     *
+     * @param drivers The drivers with their assigned loads.
+     * @param options The parsed command-line options.
+     * @throws IOException If there's an error in writing the routes.
+     */
+    private static void writeResult(List<Driver> drivers, Map<String, String> options) throws IOException {
+        ResultWriter writer;
+        try {
+            writer = new ResultWriter(ResultWriter.Format.parse(options.getOrDefault("format", "text")),
+                    Boolean.parseBoolean(options.getOrDefault("summary", "false")));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (options.containsKey("output")) {
+            writer.write(drivers, Path.of(options.get("output")));
+        } else {
+            // Written straight to the standard output's file descriptor, which stays open for the rest of the program
+            System.out.flush();
+            writer.write(drivers, new FileOutputStream(FileDescriptor.out).getChannel());
+        }
+    }
+
+    /**
+     * Converts a text instance to the binary instance format.
+     *
+     * @param paths The text file path and optionally the binary file path.
+     * @throws IOException If there's an error in reading or writing the files.
+     */
+    private static void convert(String[] paths) throws IOException {
+        if (paths.length < 1) {
+            System.out.println("Error: No file path provided. Usage: --convert <text file> [<binary file>]");
+            System.exit(1);
+        }
+        String binaryPath = paths.length > 1 ? paths[1] : BinaryInstanceFormat.defaultBinaryPath(paths[0]);
+        int count = BinaryInstanceFormat.convert(paths[0], binaryPath);
+        System.out.println("Converted " + count + " loads to " + binaryPath);
+    }
+
+    /**
+     * Solves every instance matched by the --batch option in parallel and prints the summary.
+     *
+     * @param options The parsed command-line options.
+     * @throws IOException If the instances cannot be listed or the output directory cannot be created.
+     */
+    private static void runBatch(Map<String, String> options) throws IOException {
+        BatchRunner runner = new BatchRunner(Path.of(options.getOrDefault("out", "batch-results")), threadCount(options));
+        List<BatchRunner.InstanceResult> results = runner.run(BatchRunner.findInstances(options.get("batch")));
+        runner.printSummary(results, System.out);
+        if (results.stream().anyMatch(result -> result.getError() != null))
+            System.exit(1);
+    }
+
+    /**
+     * Writes the synthetic instance requested by the --generate option.
+     *
+     * @param options The parsed command-line options.
+     * @throws IOException If the instance cannot be written.
+     */
+    private static void generate(Map<String, String> options) throws IOException {
+        int loads = Integer.parseInt(options.get("generate"));
+        Path file = Path.of(options.getOrDefault("out", "generated-" + loads + ".txt"));
+        generator(options).write(loads, file);
+        System.out.println("Generated " + loads + " loads to " + file);
+    }
+
+    /**
+     * Runs the size sweep requested by the --scale option, then stores or checks the baseline.
+     *
+     * @param options The parsed command-line options.
+     * @throws IOException If the baseline cannot be read or written.
+     */
+    private static void runScaling(Map<String, String> options) throws IOException {
+        int[] sizes = Arrays.stream(options.get("scale").split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        ScalingHarness harness = new ScalingHarness(generator(options),
+                Integer.parseInt(options.getOrDefault("warm-up", "2")),
+                Integer.parseInt(options.getOrDefault("runs", "5")),
+                Double.parseDouble(options.getOrDefault("time-tolerance", "0.5")),
+                Double.parseDouble(options.getOrDefault("cost-tolerance", "0")));
+        List<ScalingHarness.Measurement> measurements = harness.run(sizes);
+        if (options.containsKey("write-baseline")) {
+            Path baseline = Path.of(options.get("write-baseline"));
+            harness.compare(measurements, Map.of(), System.out);
+            ScalingHarness.writeBaseline(baseline, measurements);
+            System.out.println("Wrote baseline " + baseline);
+            return;
+        }
+        Map<String, ScalingHarness.Measurement> baseline = options.containsKey("baseline")
+                ? ScalingHarness.readBaseline(Path.of(options.get("baseline"))) : Map.of();
+        if (!harness.compare(measurements, baseline, System.out))
+            System.exit(2);
+    }
+
+    /**
+     * Runs the solver service requested by the --serve option until its input ends or the process is stopped.
+     *
+     * @param options The parsed command-line options.
+     * @throws IOException If the port cannot be bound, or the standard input or output fails.
+     */
+    private static void serve(Map<String, String> options) throws IOException {
+        String endpoint = options.get("serve");
+        SolverServer server;
+        try {
+            server = new SolverServer(SolverStrategy.forName(options.getOrDefault("strategy", "greedy")),
+                    Integer.parseInt(options.getOrDefault("max-concurrent", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        try (server) {
+            if (Boolean.parseBoolean(options.getOrDefault("warm-up", "true")))
+                server.warmUp();
+            if (endpoint.equals("stdin")) {
+                server.serve(System.in, System.out);
+            } else {
+                try (ServerSocket socket = new ServerSocket(Integer.parseInt(endpoint), 0, InetAddress.getLoopbackAddress())) {
+                    System.err.println("Serving on " + socket.getLocalSocketAddress());
+                    server.serve(socket);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the instance generator selected by the --distribution and --seed options.
+     *
+     * @param options The parsed command-line options.
+     * @return The generator.
+     */
+    private static InstanceGenerator generator(Map<String, String> options) {
+        return new InstanceGenerator(InstanceGenerator.Distribution.parse(options.getOrDefault("distribution", "uniform")),
+                Long.parseLong(options.getOrDefault("seed", "0")));
+    }
+
+    /**
+     * Reads the --threads option.
+     *
+     * @param options The parsed command-line options.
+     * @return The requested number of threads, or the number of available processors if none was given.
+     */
+    private static int threadCount(Map<String, String> options) {
+        return Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+}
@@ -0,0 +1,133 @@
+package helpers;
+
+import java.math.BigInteger;
+
+/**
+ * Converts a decimal number, already split into its sign, significant digits and power of ten, into the nearest double.
+ * This lets byte-level scanners turn digits into doubles without building a String for {@link Double#parseDouble}.
+ * <p>
+ * Exactly representable cases are handled with a single floating point operation; everything else uses the
+ * Eisel-Lemire algorithm over a table of 128-bit powers of five. In the rare cases where that algorithm cannot decide
+ * the rounding, {@link #toDouble} reports failure and the caller falls back to {@link Double#parseDouble}, so results
+ * are always identical to it.
+ * </p>
+ * This class is not meant to be instantiated or subclassed.
+ */
+public final class DecimalParser {
+    /**
+     * Returned by {@link #toDouble} when the fast conversion cannot guarantee a correctly rounded result.
+     * A NaN is never produced by a successful conversion, so callers test for it with {@link Double#isNaN(double)}.
+     */
+    public static final double FAILED = Double.NaN;
+
+    /**
+     * The largest number of significant digits {@link #toDouble} accepts, i.e. every value that fits into a long.
+     */
+    public static final int MAX_DIGITS = 19;
+
+    private static final int MIN_EXPONENT = -342;
+    private static final int MAX_EXPONENT = 308;
+    private static final long[] POWER_HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    private static final long[] POWER_LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    static {
+        // 5^q normalized to 128 bits: truncated for q >= 0, rounded up for q < 0
+        BigInteger limit = BigInteger.ONE.shiftLeft(128);
+        for (int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++) {
+            BigInteger power;
+            if (q >= 0) {
+                power = BigInteger.valueOf(5).pow(q);
+                int shift = power.bitLength() - 128;
+                power = shift > 0 ? power.shiftRight(shift) : power.shiftLeft(-shift);
+            } else {
+                BigInteger divisor = BigInteger.valueOf(5).pow(-q);
+                int z = divisor.bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                power = BigInteger.ONE.shiftLeft(b).divide(divisor).add(BigInteger.ONE);
+                while (power.compareTo(limit) >= 0)
+                    power = power.shiftRight(1);
+            }
+            POWER_HIGH[q - MIN_EXPONENT] = power.shiftRight(64).longValue();
+            POWER_LOW[q - MIN_EXPONENT] = power.longValue();
+        }
+    }
+
+    // Prevent instantiation
+    private DecimalParser() {
+        throw new AssertionError("Cannot instantiate helpers.DecimalParser class");
+    }
+
+    /**
+     * Computes the double nearest to {@code (negative ? -1 : 1) * significand * 10^exponent}.
+     *
+     * @param negative    whether the number carries a minus sign.
+     * @param significand the significant digits as an unsigned integer of at most {@link #MAX_DIGITS} digits.
+     * @param exponent    the power of ten the significand is scaled by.
+     * @return the correctly rounded double, or {@link #FAILED} if the caller has to fall back to {@link Double#parseDouble}.
+     */
+    public static double toDouble(boolean negative, long significand, int exponent) {
+        if (significand == 0)
+            return negative ? -0.0 : 0.0;
+
+        // Both the significand and the power of ten are exact doubles, so one operation rounds correctly
+        if (significand > 0 && significand <= (1L << 53) && exponent >= -22 && exponent <= 22) {
+            double value = significand;
+            value = exponent < 0 ? value / EXACT_POWERS_OF_TEN[-exponent] : value * EXACT_POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT)
+            return FAILED;
+
+        // Eisel-Lemire: multiply the normalized significand by the truncated 128-bit power of ten
+        int leadingZeros = Long.numberOfLeadingZeros(significand);
+        long w = significand << leadingZeros;
+        long powerHigh = POWER_HIGH[exponent - MIN_EXPONENT];
+        long productHigh = unsignedMultiplyHigh(w, powerHigh);
+        long productLow = w * powerHigh;
+
+        // The truncated power may have hidden a carry into the bits we keep; widen with the low half to find out
+        if ((productHigh & 0x1FF) == 0x1FF && Long.compareUnsigned(productLow + w, w) < 0) {
+            long powerLow = POWER_LOW[exponent - MIN_EXPONENT];
+            long secondHigh = unsignedMultiplyHigh(w, powerLow);
+            long secondLow = w * powerLow;
+            long mergedHigh = productHigh;
+            long mergedLow = productLow + secondHigh;
+            if (Long.compareUnsigned(mergedLow, productLow) < 0)
+                mergedHigh++;
+            if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0 && Long.compareUnsigned(secondLow + w, w) < 0)
+                return FAILED;
+            productHigh = mergedHigh;
+            productLow = mergedLow;
+        }
+
+        // Keep 54 bits, one more than the mantissa, for rounding
+        int msb = (int) (productHigh >>> 63);
+        long mantissa = productHigh >>> (msb + 9);
+        long biasedExponent = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros - (1 ^ msb);
+
+        // Exactly half way between two doubles: the truncated product cannot tell which way to round
+        if (productLow == 0 && (productHigh & 0x1FF) == 0 && (mantissa & 3) == 1)
+            return FAILED;
+
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if ((mantissa >>> 53) > 0) {
+            mantissa >>>= 1;
+            biasedExponent++;
+        }
+        // Subnormals and overflow are left to the fallback
+        if (biasedExponent < 1 || biasedExponent > 0x7FE)
+            return FAILED;
+        long bits = (biasedExponent << 52) | (mantissa & 0x000FFFFFFFFFFFFFL);
+        if (negative)
+            bits |= Long.MIN_VALUE;
+        return Double.longBitsToDouble(bits);
+    }
+
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+}
@@ -0,0 +1,45 @@
+package helpers;
+
+/**
+ * Allocation-free distance primitives operating directly on coordinates.
+ * The solver's hot paths call these instead of passing {@code double[]} points around, so the work done per
+ * candidate is plain arithmetic with no intermediate arrays and no {@link Math#pow} calls.
+ * This class is not meant to be instantiated or subclassed.
+ */
+public final class DistanceKernel {
+
+    // Prevent instantiation
+    private DistanceKernel() {
+        throw new AssertionError("Cannot instantiate helpers.DistanceKernel class");
+    }
+
+    /**
+     * Calculates the Euclidean distance between two points.
+     *
+     * @param x1 the x coordinate of the first point.
+     * @param y1 the y coordinate of the first point.
+     * @param x2 the x coordinate of the second point.
+     * @param y2 the y coordinate of the second point.
+     * @return the Euclidean distance between the two points.
+     */
+    public static double distance(double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between two points, for comparisons that do not need the root.
+     *
+     * @param x1 the x coordinate of the first point.
+     * @param y1 the y coordinate of the first point.
+     * @param x2 the x coordinate of the second point.
+     * @param y2 the y coordinate of the second point.
+     * @return the squared Euclidean distance between the two points.
+     */
+    public static double distanceSquared(double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        return dx * dx + dy * dy;
+    }
+}
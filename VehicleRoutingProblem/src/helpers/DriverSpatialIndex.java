@@ -0,0 +1,268 @@
+package helpers;
+
+import contants.Constants;
+
+import java.util.Arrays;
+
+/**
+ * A dynamic uniform grid over the location each driver currently ends at (the drop-off of the driver's last load).
+ * Drivers are identified by their index in the solver's driver list. The index supports bounded candidate queries
+ * (every driver within a given radius of a point), moving a driver when it takes a new load, and removing a driver
+ * once it can no longer accept any load.
+ * <p>
+ * Cells are numbered by {@link GridCells}, an open-addressing hash table keyed on the packed cell coordinates, so the
+ * grid is unbounded and only occupied cells use memory. Queries never allocate once the internal buffers have grown
+ * to their working size.
+ * </p>
+ */
+public class DriverSpatialIndex {
+    /**
+     * Default cell edge length. The candidate radius used by the solver is never smaller than the cost of a driver,
+     * so a cell of that size keeps a query to a handful of cells.
+     */
+    public static final double DEFAULT_CELL_SIZE = Constants.COST_OF_DRIVER;
+
+    // Relative slack applied to query radii so floating point rounding can never drop a driver that an exact
+    // distance comparison would accept
+    private static final double RADIUS_SLACK = 1e-9;
+
+    private final double cellSize;
+
+    // Per driver state, indexed by driver number; cellOf is -1 for drivers not in the index
+    private double[] endX = new double[16];
+    private double[] endY = new double[16];
+    private int[] cellOf = new int[16];
+    private int[] slotInCell = new int[16];
+    private int driverSlots;
+    private int activeDrivers;
+
+    // Numbers the occupied cells; cell storage is indexed by cell number
+    private final GridCells cells = new GridCells();
+    private int[][] cellMembers = new int[16][];
+    private int[] cellCount = new int[16];
+
+    private int[] result = new int[16];
+
+    /**
+     * Constructs an empty index using {@link #DEFAULT_CELL_SIZE}.
+     */
+    public DriverSpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructs an empty index with the given cell edge length.
+     *
+     * @param cellSize The edge length of a grid cell; must be positive.
+     * @throws IllegalArgumentException if the cell size is not positive.
+     */
+    public DriverSpatialIndex(double cellSize) {
+        if (!(cellSize > 0))
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        this.cellSize = cellSize;
+        Arrays.fill(this.cellOf, -1);
+    }
+
+    /**
+     * Removes every driver from the index.
+     */
+    public void clear() {
+        Arrays.fill(this.cellOf, 0, this.driverSlots, -1);
+        Arrays.fill(this.cellCount, 0, this.cells.size(), 0);
+        this.cells.clear();
+        this.driverSlots = 0;
+        this.activeDrivers = 0;
+    }
+
+    /**
+     * Returns one past the highest driver number ever stored since the last {@link #clear()}, i.e. how many drivers
+     * of the solver's list the index has seen, whether or not they are still active.
+     *
+     * @return The number of driver slots known to the index.
+     */
+    public int size() {
+        return this.driverSlots;
+    }
+
+    /**
+     * Returns the number of drivers currently held in the index.
+     *
+     * @return The number of active drivers.
+     */
+    public int activeCount() {
+        return this.activeDrivers;
+    }
+
+    /**
+     * Inserts a driver, or moves it if it is already in the index.
+     *
+     * @param driver The driver number.
+     * @param x      The x coordinate of the driver's current end location.
+     * @param y      The y coordinate of the driver's current end location.
+     */
+    public void put(int driver, double x, double y) {
+        ensureDriverCapacity(driver + 1);
+        int cell = findOrCreateCell(cellCoordinate(x), cellCoordinate(y));
+        if (this.cellOf[driver] != cell) {
+            if (this.cellOf[driver] >= 0) {
+                detach(driver);
+            } else {
+                this.activeDrivers++;
+            }
+            attach(driver, cell);
+        }
+        this.endX[driver] = x;
+        this.endY[driver] = y;
+    }
+
+    /**
+     * Retrieves the x coordinate last stored for a driver.
+     *
+     * @param driver The driver number.
+     * @return The x coordinate of the driver's end location.
+     */
+    public double endX(int driver) {
+        return this.endX[driver];
+    }
+
+    /**
+     * Retrieves the y coordinate last stored for a driver.
+     *
+     * @param driver The driver number.
+     * @return The y coordinate of the driver's end location.
+     */
+    public double endY(int driver) {
+        return this.endY[driver];
+    }
+
+    /**
+     * Removes a driver from the index. Removing a driver that is not in the index has no effect.
+     *
+     * @param driver The driver number.
+     */
+    public void remove(int driver) {
+        ensureDriverCapacity(driver + 1);
+        if (this.cellOf[driver] >= 0) {
+            detach(driver);
+            this.cellOf[driver] = -1;
+            this.activeDrivers--;
+        }
+    }
+
+    /**
+     * Collects every indexed driver whose end location lies within the given radius of a point. The candidates are
+     * returned in ascending driver number so callers can reproduce the order of a linear scan over the driver list.
+     * The radius is widened by a tiny relative slack, so the result may contain drivers marginally outside the radius
+     * but never misses one inside it; callers are expected to apply their exact test to each candidate.
+     *
+     * @param x      The x coordinate of the query point.
+     * @param y      The y coordinate of the query point.
+     * @param radius The search radius.
+     * @return The number of candidates, readable through {@link #candidate(int)}.
+     */
+    public int query(double x, double y, double radius) {
+        if (!(radius >= 0) || this.activeDrivers == 0)
+            return 0;
+        double r = radius * (1 + RADIUS_SLACK) + RADIUS_SLACK;
+        double rSquared = r * r;
+        long minCx = (long) Math.floor((x - r) / this.cellSize);
+        long maxCx = (long) Math.floor((x + r) / this.cellSize);
+        long minCy = (long) Math.floor((y - r) / this.cellSize);
+        long maxCy = (long) Math.floor((y + r) / this.cellSize);
+        int found = 0;
+
+        // Walk whichever is smaller: the cells covering the query box, or the occupied cells
+        if ((double) (maxCx - minCx + 1) * (maxCy - minCy + 1) <= this.cells.size()) {
+            for (long cx = minCx; cx <= maxCx; cx++) {
+                for (long cy = minCy; cy <= maxCy; cy++) {
+                    int cell = this.cells.find((int) cx, (int) cy);
+                    if (cell >= 0)
+                        found = collect(cell, x, y, rSquared, found);
+                }
+            }
+        } else {
+            for (int cell = 0; cell < this.cells.size(); cell++) {
+                if (this.cellCount[cell] > 0 && this.cells.cellX(cell) >= minCx && this.cells.cellX(cell) <= maxCx
+                        && this.cells.cellY(cell) >= minCy && this.cells.cellY(cell) <= maxCy)
+                    found = collect(cell, x, y, rSquared, found);
+            }
+        }
+        Arrays.sort(this.result, 0, found);
+        return found;
+    }
+
+    /**
+     * Returns a candidate produced by the last {@link #query(double, double, double)}.
+     *
+     * @param k The position of the candidate, between 0 and the count returned by the query.
+     * @return The driver number.
+     */
+    public int candidate(int k) {
+        return this.result[k];
+    }
+
+    private int collect(int cell, double x, double y, double rSquared, int found) {
+        int[] members = this.cellMembers[cell];
+        for (int m = 0; m < this.cellCount[cell]; m++) {
+            int driver = members[m];
+            double dx = this.endX[driver] - x;
+            double dy = this.endY[driver] - y;
+            if (dx * dx + dy * dy <= rSquared) {
+                if (found == this.result.length)
+                    this.result = Arrays.copyOf(this.result, found * 2);
+                this.result[found++] = driver;
+            }
+        }
+        return found;
+    }
+
+    private int cellCoordinate(double value) {
+        return (int) Math.floor(value / this.cellSize);
+    }
+
+    private void attach(int driver, int cell) {
+        int[] members = this.cellMembers[cell];
+        if (members == null) {
+            members = new int[4];
+            this.cellMembers[cell] = members;
+        } else if (this.cellCount[cell] == members.length) {
+            members = Arrays.copyOf(members, members.length * 2);
+            this.cellMembers[cell] = members;
+        }
+        members[this.cellCount[cell]] = driver;
+        this.slotInCell[driver] = this.cellCount[cell]++;
+        this.cellOf[driver] = cell;
+    }
+
+    private void detach(int driver) {
+        int cell = this.cellOf[driver];
+        int[] members = this.cellMembers[cell];
+        int last = members[--this.cellCount[cell]];
+        members[this.slotInCell[driver]] = last;
+        this.slotInCell[last] = this.slotInCell[driver];
+    }
+
+    private void ensureDriverCapacity(int slots) {
+        if (slots > this.endX.length) {
+            int capacity = Math.max(slots, this.endX.length * 2);
+            this.endX = Arrays.copyOf(this.endX, capacity);
+            this.endY = Arrays.copyOf(this.endY, capacity);
+            this.slotInCell = Arrays.copyOf(this.slotInCell, capacity);
+            int oldLength = this.cellOf.length;
+            this.cellOf = Arrays.copyOf(this.cellOf, capacity);
+            Arrays.fill(this.cellOf, oldLength, capacity, -1);
+        }
+        if (slots > this.driverSlots)
+            this.driverSlots = slots;
+    }
+
+    private int findOrCreateCell(int cx, int cy) {
+        int cell = this.cells.findOrAdd(cx, cy);
+        if (cell == this.cellCount.length) {
+            int capacity = this.cellCount.length * 2;
+            this.cellMembers = Arrays.copyOf(this.cellMembers, capacity);
+            this.cellCount = Arrays.copyOf(this.cellCount, capacity);
+        }
+        return cell;
+    }
+}
@@ -0,0 +1,139 @@
+package helpers;
+
+import java.util.Arrays;
+
+/**
+ * Numbers the occupied cells of an unbounded uniform grid. Each cell, given by its integer cell coordinates, is given
+ * the next free cell number the first time it is used, so callers can keep their per cell state in plain arrays
+ * indexed by cell number. The cell numbers are found through an open-addressing hash table keyed on the packed cell
+ * coordinates, so only occupied cells use memory and lookups never allocate.
+ * <p>
+ * Shared by the spatial indexes over driver end locations, {@link DriverSpatialIndex} and the dispatcher's grid.
+ * </p>
+ */
+public final class GridCells {
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    // Hash table from packed cell key to cell number
+    private long[] tableKeys = new long[64];
+    private int[] tableCells = new int[64];
+    private int tableMask = 63;
+
+    // Cell coordinates, indexed by cell number
+    private int[] cellX = new int[16];
+    private int[] cellY = new int[16];
+    private int size;
+
+    /**
+     * Constructs a grid with no cells.
+     */
+    public GridCells() {
+        Arrays.fill(this.tableKeys, EMPTY_KEY);
+    }
+
+    /**
+     * Retrieves the number of cells numbered so far; the cell numbers run from 0 to one less than this.
+     *
+     * @return The number of cells.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Forgets every cell, so numbering starts again from 0.
+     */
+    public void clear() {
+        Arrays.fill(this.tableKeys, EMPTY_KEY);
+        this.size = 0;
+    }
+
+    /**
+     * Retrieves the x cell coordinate of a cell.
+     *
+     * @param cell The cell number.
+     * @return The x cell coordinate.
+     */
+    public int cellX(int cell) {
+        return this.cellX[cell];
+    }
+
+    /**
+     * Retrieves the y cell coordinate of a cell.
+     *
+     * @param cell The cell number.
+     * @return The y cell coordinate.
+     */
+    public int cellY(int cell) {
+        return this.cellY[cell];
+    }
+
+    /**
+     * Looks up the number of a cell.
+     *
+     * @param cx The x cell coordinate.
+     * @param cy The y cell coordinate.
+     * @return The cell number, or -1 if the cell has not been numbered.
+     */
+    public int find(int cx, int cy) {
+        long key = packKey(cx, cy);
+        for (int slot = hash(key) & this.tableMask; ; slot = (slot + 1) & this.tableMask) {
+            long stored = this.tableKeys[slot];
+            if (stored == key)
+                return this.tableCells[slot];
+            if (stored == EMPTY_KEY)
+                return -1;
+        }
+    }
+
+    /**
+     * Looks up the number of a cell, numbering it first if it has not been used yet. A new cell gets the number
+     * {@link #size()} had before the call.
+     *
+     * @param cx The x cell coordinate.
+     * @param cy The y cell coordinate.
+     * @return The cell number.
+     */
+    public int findOrAdd(int cx, int cy) {
+        int cell = find(cx, cy);
+        if (cell >= 0)
+            return cell;
+        if (this.size == this.cellX.length) {
+            this.cellX = Arrays.copyOf(this.cellX, this.size * 2);
+            this.cellY = Arrays.copyOf(this.cellY, this.size * 2);
+        }
+        cell = this.size++;
+        this.cellX[cell] = cx;
+        this.cellY[cell] = cy;
+        if (this.size * 2 > this.tableKeys.length)
+            rehash(this.tableKeys.length * 2);
+        insertKey(packKey(cx, cy), cell);
+        return cell;
+    }
+
+    private static long packKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void insertKey(long key, int cell) {
+        int slot = hash(key) & this.tableMask;
+        while (this.tableKeys[slot] != EMPTY_KEY)
+            slot = (slot + 1) & this.tableMask;
+        this.tableKeys[slot] = key;
+        this.tableCells[slot] = cell;
+    }
+
+    private void rehash(int capacity) {
+        this.tableKeys = new long[capacity];
+        this.tableCells = new int[capacity];
+        this.tableMask = capacity - 1;
+        Arrays.fill(this.tableKeys, EMPTY_KEY);
+        for (int cell = 0; cell < this.size; cell++)
+            insertKey(packKey(this.cellX[cell], this.cellY[cell]), cell);
+    }
+}
@@ -2,12 +2,13 @@ package helpers;
 
 import contants.Constants;
 import objects.Load;
+import objects.LoadTable;
 
 import java.util.List;
 
 /**
- * Helper class providing methods for various calculations including Euclidean distance, total distance,
- * as well as finding the nearest neighbor among a set of locations.
+ * Helper class providing methods for various calculations including Euclidean distance and total distance.
+ * Nearest neighbours of the loads are found by {@link NeighbourLists}.
  */
 public class Helper {
 
@@ -19,8 +20,7 @@ public class Helper {
      * @return the Euclidean distance between loadOne and loadTwo.
      */
     public double getEuclideanDistance(double[] loadOne, double[] loadTwo) {
-        double squareDistance = Math.pow(loadTwo[0] - loadOne[0], 2) + Math.pow(loadTwo[1] - loadOne[1], 2);
-        return Math.sqrt(squareDistance);
+        return DistanceKernel.distance(loadOne[0], loadOne[1], loadTwo[0], loadTwo[1]);
     }
 
     /**
@@ -30,56 +30,35 @@ public class Helper {
      * @return the total distance traveled.
      */
     public double getTotalDistance(List<Load> loads) {
-        double[] firstPickUp = loads.get(0).getPickUpLocation();
-        double[] lastDropOff = loads.get(loads.size() - 1).getDropOffLocation();
-        double totalDistance = getEuclideanDistance(Constants.DEPOT_LOCATION, firstPickUp) + getEuclideanDistance(Constants.DEPOT_LOCATION, lastDropOff);
+        double depotX = Constants.DEPOT_LOCATION[0];
+        double depotY = Constants.DEPOT_LOCATION[1];
+        Load first = loads.get(0);
+        Load last = loads.get(loads.size() - 1);
+        double totalDistance = DistanceKernel.distance(depotX, depotY, first.getPickUpX(), first.getPickUpY())
+                + DistanceKernel.distance(depotX, depotY, last.getDropOffX(), last.getDropOffY());
         for (int i = 0; i < loads.size() - 1; i++) {
-            double[][] prevLoad = new double[][]{loads.get(i).getPickUpLocation(),loads.get(i).getDropOffLocation()};
-            double[][] nextLoad = new double[][]{loads.get(i+1).getPickUpLocation(),loads.get(i+1).getDropOffLocation()};
-            totalDistance += getEuclideanDistance(prevLoad[0],prevLoad[1])+getEuclideanDistance(prevLoad[1], nextLoad[0]);
+            Load prev = loads.get(i);
+            Load next = loads.get(i + 1);
+            totalDistance += DistanceKernel.distance(prev.getPickUpX(), prev.getPickUpY(), prev.getDropOffX(), prev.getDropOffY())
+                    + DistanceKernel.distance(prev.getDropOffX(), prev.getDropOffY(), next.getPickUpX(), next.getPickUpY());
         }
-        return totalDistance + getEuclideanDistance(loads.get(loads.size() - 1).getPickUpLocation(), lastDropOff);
+        return totalDistance + DistanceKernel.distance(last.getPickUpX(), last.getPickUpY(), last.getDropOffX(), last.getDropOffY());
     }
 
     /**
-     * Identifies the nearest neighbor to a given point from a list of remaining loads using the quick select algorithm.
+     * Calculates the total distance of a route given as load indices into a load table, starting and ending at the depot.
+     * Equivalent to {@link #getTotalDistance(List)} but reads the table's coordinate columns and precomputed distances.
      *
-     * @param curLoad the current load's location.
-     * @param remainingLoads an array of the remaining loads' locations.
-     * @return the coordinates of the nearest load.
+     * @param table the table holding the loads' coordinates.
+     * @param route the load indices in the order they are carried.
+     * @param length the number of loads in the route, read from the start of the array.
+     * @return the total distance traveled.
      */
-    public double[] getNearestNeighbor(double[] curLoad, double[][] remainingLoads) {
-        return quickSelect(curLoad, remainingLoads);
-    }
-
-    private double[] quickSelect(double[] startPoint, double[][] loads) {
-        int len = loads.length, left = 0, right = len - 1;
-        while (left <= right) {
-            int mid = findPivot(loads, left, right, startPoint);
-            if (mid == 1) break;
-            if (mid < 1) {
-                left = mid + 1;
-            } else {
-                right = mid - 1;
-            }
+    public double getTotalDistance(LoadTable table, int[] route, int length) {
+        double totalDistance = table.depotToPickup(route[0]) + table.dropToDepot(route[length - 1]);
+        for (int i = 0; i < length - 1; i++) {
+            totalDistance += table.pickupToDrop(route[i]) + table.dropToPickup(route[i], route[i + 1]);
         }
-        return loads[0];
-
-    }
-
-    private int findPivot(double[][] loads, int l, int r, double[] startPoint) {
-        double[] pivot = loads[l];
-        while (l < r) {
-            while (l < r && compare(loads[r], pivot, startPoint) >= 0) r--;
-            loads[l] = loads[r];
-            while (l < r && compare(loads[l], pivot, startPoint) <= 0) l++;
-            loads[r] = loads[l];
-        }
-        loads[l] = pivot;
-        return l;
-    }
-
-    private double compare(double[] p1, double[] p2, double[] startPoint) {
-        return Math.pow(p1[0] - startPoint[0], 2) + Math.pow(p1[1] - startPoint[1], 2) - Math.pow(p2[0] - startPoint[0], 2) + Math.pow(p2[1] - startPoint[1], 2);
+        return totalDistance + table.pickupToDrop(route[length - 1]);
     }
 }
@@ -0,0 +1,246 @@
+package helpers;
+
+import objects.LoadTable;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Granular candidate lists: for every load, the k loads whose pick-up is nearest to its drop-off, nearest first.
+ * These are the loads most worth driving to next, so construction and improvement moves restricted to them look at
+ * O(n*k) pairs instead of O(n^2).
+ * <p>
+ * The lists are one flat {@code int[n*k]} array, the candidates of load {@code i} at {@code i*k} to {@code i*k+k-1}.
+ * They are found with a static uniform grid over the pick-ups, whose loads are stored as one array sorted by cell,
+ * searched outward ring by ring from each drop-off; the loads are searched in parallel.
+ * </p>
+ * <p>
+ * The lists are also inverted, so the loads that have a given load among their candidates, the loads most worth
+ * driving right before it, can be read as well.
+ * </p>
+ * <p>
+ * Usage example:
+ * <pre>
+ *     NeighbourLists neighbours = NeighbourLists.build(table, 16, Runtime.getRuntime().availableProcessors());
+ *     for (int rank = 0; rank &lt; neighbours.getK(); rank++)
+ *         consider(neighbours.get(load, rank));
+ * </pre>
+ * </p>
+ */
+public final class NeighbourLists {
+    // Average number of pick-ups per grid cell
+    private static final double PICKUPS_PER_CELL = 2.0;
+
+    private final int k;
+    private final int[] candidates;
+    // The inverted lists: the loads listing load i are predecessors[predecessorStart[i]..predecessorStart[i+1]-1]
+    private final int[] predecessorStart;
+    private final int[] predecessors;
+
+    private NeighbourLists(int n, int k, int[] candidates) {
+        this.k = k;
+        this.candidates = candidates;
+        this.predecessorStart = new int[n + 1];
+        this.predecessors = new int[candidates.length];
+        for (int candidate : candidates)
+            predecessorStart[candidate + 1]++;
+        for (int i = 0; i < n; i++)
+            predecessorStart[i + 1] += predecessorStart[i];
+        int[] fill = Arrays.copyOf(predecessorStart, n);
+        for (int c = 0; c < candidates.length; c++)
+            predecessors[fill[candidates[c]]++] = c / k;
+    }
+
+    /**
+     * Builds the candidate lists of every load in a table.
+     *
+     * @param table       The loads of the problem instance.
+     * @param neighbours  The number of candidates wanted per load; fewer are kept when there are not that many other loads.
+     * @param parallelism The number of threads searching.
+     * @return The candidate lists.
+     * @throws IllegalArgumentException if neighbours is negative or parallelism is not positive.
+     */
+    public static NeighbourLists build(LoadTable table, int neighbours, int parallelism) {
+        if (neighbours < 0)
+            throw new IllegalArgumentException("Number of neighbours must not be negative: " + neighbours);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        int n = table.size();
+        int k = Math.min(neighbours, Math.max(n - 1, 0));
+        int[] candidates = new int[n * k];
+        if (k == 0)
+            return new NeighbourLists(n, k, candidates);
+
+        PickupGrid grid = new PickupGrid(table);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(i ->
+                    grid.nearest(table.dropX(i), table.dropY(i), i, k, candidates, i * k))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building neighbour lists", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Building neighbour lists failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return new NeighbourLists(n, k, candidates);
+    }
+
+    /**
+     * Retrieves the number of candidates kept per load.
+     *
+     * @return The list length k.
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Retrieves the number of loads with a candidate list.
+     *
+     * @return The number of loads.
+     */
+    public int size() {
+        return predecessorStart.length - 1;
+    }
+
+    /**
+     * Retrieves a candidate of a load.
+     *
+     * @param load The index of the load in the table.
+     * @param rank The position in the load's list, 0 for the nearest.
+     * @return The index of the candidate load, always another load than the given one.
+     */
+    public int get(int load, int rank) {
+        return candidates[load * k + rank];
+    }
+
+    /**
+     * Retrieves the number of loads that have a load among their candidates.
+     *
+     * @param load The index of the load in the table.
+     * @return The number of predecessors; any number from 0 to the number of loads.
+     */
+    public int getPredecessorCount(int load) {
+        return predecessorStart[load + 1] - predecessorStart[load];
+    }
+
+    /**
+     * Retrieves a load that has the given load among its candidates.
+     *
+     * @param load  The index of the load in the table.
+     * @param index The index among the load's predecessors, in ascending load index.
+     * @return The index of the predecessor load.
+     */
+    public int getPredecessor(int load, int index) {
+        return predecessors[predecessorStart[load] + index];
+    }
+
+    /**
+     * A static uniform grid over the pick-up locations, stored as one array of load indices sorted by cell, used to find
+     * the pick-ups nearest to a point.
+     */
+    private static final class PickupGrid {
+        private final LoadTable table;
+        private final double minX;
+        private final double minY;
+        private final double cellSize;
+        private final int columns;
+        private final int rows;
+        private final int[] cellStart;
+        private final int[] members;
+
+        private PickupGrid(LoadTable table) {
+            this.table = table;
+            int n = table.size();
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, table.pickupX(i));
+                minY = Math.min(minY, table.pickupY(i));
+                maxX = Math.max(maxX, table.pickupX(i));
+                maxY = Math.max(maxY, table.pickupY(i));
+            }
+            this.minX = minX;
+            this.minY = minY;
+            double width = maxX - minX;
+            double height = maxY - minY;
+            // Sized on the area, and on the longer side for pick-ups lying almost on a line, so there are O(n) cells
+            this.cellSize = Math.max(Math.max(Math.sqrt(width * height * PICKUPS_PER_CELL / n),
+                    Math.max(width, height) * PICKUPS_PER_CELL / n), 1e-9);
+            this.columns = (int) (width / cellSize) + 1;
+            this.rows = (int) (height / cellSize) + 1;
+
+            // Counting sort of the loads by cell
+            int[] cellOf = new int[n];
+            this.cellStart = new int[columns * rows + 1];
+            for (int i = 0; i < n; i++) {
+                cellOf[i] = column(table.pickupX(i)) * rows + row(table.pickupY(i));
+                cellStart[cellOf[i] + 1]++;
+            }
+            for (int c = 0; c < columns * rows; c++)
+                cellStart[c + 1] += cellStart[c];
+            this.members = new int[n];
+            int[] fill = Arrays.copyOf(cellStart, columns * rows);
+            for (int i = 0; i < n; i++)
+                members[fill[cellOf[i]]++] = i;
+        }
+
+        private int column(double x) {
+            return Math.max(0, Math.min(columns - 1, (int) ((x - minX) / cellSize)));
+        }
+
+        private int row(double y) {
+            return Math.max(0, Math.min(rows - 1, (int) ((y - minY) / cellSize)));
+        }
+
+        /**
+         * Writes the k loads whose pick-ups are nearest to a point into {@code out}, nearest first. Equally distant
+         * loads are taken in ascending load index.
+         */
+        private void nearest(double x, double y, int exclude, int k, int[] out, int offset) {
+            double[] bestDistance = new double[k];
+            Arrays.fill(bestDistance, Double.MAX_VALUE);
+            Arrays.fill(out, offset, offset + k, -1);
+            int cx = column(x);
+            int cy = row(y);
+            int maxRing = Math.max(Math.max(cx, columns - 1 - cx), Math.max(cy, rows - 1 - cy));
+            for (int ring = 0; ring <= maxRing; ring++) {
+                // A point outside the grid is farther from the cells than the ring count suggests, never nearer
+                if (out[offset + k - 1] >= 0 && (ring - 1) * cellSize > bestDistance[k - 1])
+                    break;
+                for (int gx = Math.max(cx - ring, 0); gx <= Math.min(cx + ring, columns - 1); gx++) {
+                    boolean edgeColumn = gx == cx - ring || gx == cx + ring;
+                    int step = edgeColumn ? 1 : 2 * ring;
+                    for (int gy = cy - ring; gy <= cy + ring; gy += Math.max(step, 1)) {
+                        if (gy < 0 || gy >= rows)
+                            continue;
+                        int cell = gx * rows + gy;
+                        for (int m = cellStart[cell]; m < cellStart[cell + 1]; m++) {
+                            int j = members[m];
+                            if (j == exclude)
+                                continue;
+                            double distance = DistanceKernel.distance(x, y, table.pickupX(j), table.pickupY(j));
+                            insert(distance, j, bestDistance, out, offset, k);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static void insert(double distance, int j, double[] bestDistance, int[] out, int offset, int k) {
+            if (distance > bestDistance[k - 1] || (distance == bestDistance[k - 1] && out[offset + k - 1] >= 0 && j > out[offset + k - 1]))
+                return;
+            int slot = k - 1;
+            while (slot > 0 && (bestDistance[slot - 1] > distance || (bestDistance[slot - 1] == distance && out[offset + slot - 1] > j))) {
+                bestDistance[slot] = bestDistance[slot - 1];
+                out[offset + slot] = out[offset + slot - 1];
+                slot--;
+            }
+            bestDistance[slot] = distance;
+            out[offset + slot] = j;
+        }
+    }
+}
@@ -1,61 +1,247 @@
 package objects;
 
-import objects.Load;
+import contants.Constants;
+import helpers.DistanceKernel;
+import helpers.Helper;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Represents a driver who carries loads from one location to another.
- * Each driver maintains a list of loads assigned to them and the cumulative working time
- * which represents the total time spent carrying all the loads.
- * The class provides methods to manage the loads for the driver and to get and update the working time.
+ * Each driver maintains the loads assigned to them, in the order they are carried, as a ledger of the route: the load
+ * indices in a primitive array and the distance driven from the depot up to each drop-off. The ledger is extended as
+ * loads are added, so the working time, the cost of the route including the drive back to the depot, the working time
+ * left and the cost of inserting a load anywhere on the route are all answered without walking the route. No Load objects are kept; all
+ * loads of a driver come from the same {@link LoadTable} and {@link #getLoads()} creates their views on access.
+ * <p>
+ * Starting the JVM with {@code -Dvrp.verifyLedger=true} cross-checks the ledger against a full recomputation of the
+ * route after every added load; see {@link #verify()}.
+ * </p>
  */
 public class Driver {
-    private List<Load> loads;
-    private double workingTime;
+    /**
+     * Whether every change to a driver's ledger is verified, from the {@code vrp.verifyLedger} system property.
+     */
+    public static final boolean VERIFY_LEDGER = Boolean.getBoolean("vrp.verifyLedger");
+
+    // Largest relative difference between the ledger and a recomputation that verification accepts
+    private static final double VERIFY_TOLERANCE = 1e-9;
+
+    // The table all loads on the route come from, known once the first load is added
+    private LoadTable table;
+    private final List<Load> loadsView;
+    // The load index (load number minus one) of every load on the route
+    private int[] route;
+    // The distance from the depot to the drop-off of every load on the route, following the route
+    private double[] prefixDistance;
+    private int length;
+    private double lastDropOffX;
+    private double lastDropOffY;
+    private double returnDistance;
 
     /**
      * Constructs a new Driver with an empty list of loads and zero working time.
      */
     public Driver() {
-        this.loads = new ArrayList<>();
-        this.workingTime = 0.0;
+        this.loadsView = new LoadsView();
+        this.route = new int[4];
+        this.prefixDistance = new double[4];
+        this.lastDropOffX = Constants.DEPOT_LOCATION[0];
+        this.lastDropOffY = Constants.DEPOT_LOCATION[1];
     }
 
     /**
      * Returns the list of loads assigned to this driver.
      *
-     * @return A list of Load objects.
+     * @return An unmodifiable list of Load objects, in the order they are carried, that follows later changes to the route.
      */
     public List<Load> getLoads(){
-        return this.loads;
+        return this.loadsView;
+    }
+
+    /**
+     * Retrieves the number of loads assigned to this driver.
+     *
+     * @return The number of loads.
+     */
+    public int getLoadCount() {
+        return this.length;
+    }
+
+    /**
+     * Retrieves the load index, i.e. the load number minus one, of a load on the route.
+     *
+     * @param position The position of the load on the route, from 0.
+     * @return The load index.
+     */
+    public int getLoadIndex(int position) {
+        return this.route[position];
+    }
+
+    /**
+     * Retrieves the distance driven from the depot up to the drop-off of a load on the route.
+     *
+     * @param position The position of the load on the route, from 0.
+     * @return The distance from the depot to that drop-off along the route.
+     */
+    public double getPrefixDistance(int position) {
+        return this.prefixDistance[position];
     }
 
     /**
      * Retrieves the total working time of this driver.
      *
-     * @return The cumulative working time spent on all loads.
+     * @return The distance driven from the depot to the last drop-off, not counting the drive back to the depot.
      */
     public double getWorkingTime(){
-        return this.workingTime;
+        return this.length == 0 ? 0.0 : this.prefixDistance[this.length - 1];
+    }
+
+    /**
+     * Retrieves the distance of the whole route, from the depot back to the depot.
+     *
+     * @return The route distance, 0 if the driver has no loads.
+     */
+    public double getRouteDistance() {
+        return getWorkingTime() + this.returnDistance;
+    }
+
+    /**
+     * Retrieves the cost of this driver: the cost of a driver plus the distance of the route.
+     *
+     * @return The cost of the driver.
+     */
+    public double getCost() {
+        return Constants.COST_OF_DRIVER + getRouteDistance();
+    }
+
+    /**
+     * Retrieves how much longer the route could be within the maximum working time, counting the drive back to the depot.
+     *
+     * @return The working time left, negative if the route is already too long.
+     */
+    public double getRemainingWorkingTime() {
+        return Constants.MAX_WORKING_TIME - getRouteDistance();
+    }
+
+    /**
+     * Calculates how much longer the route becomes if a load is appended to it, including the changed drive back to
+     * the depot.
+     *
+     * @param load The load.
+     * @return The increase in route distance.
+     */
+    public double getInsertionCost(Load load) {
+        return getInsertionCost(load, this.length);
     }
 
     /**
-     * Adds a new load to the list of loads assigned to this driver.
+     * Calculates how much longer the route becomes if a load is inserted at a position, carried between the load
+     * before it and the load after it. The drive that the load replaces, from the drop-off before it to the pick-up
+     * after it, is read from the prefix distances rather than recomputed, so the cost takes two distance computations
+     * whatever the position and the length of the route.
+     *
+     * @param load     The load.
+     * @param position The position the load would take on the route, from 0 to insert it first up to
+     *                 {@link #getLoadCount()} to append it.
+     * @return The increase in route distance.
+     * @throws IndexOutOfBoundsException if the position is outside the route.
+     */
+    public double getInsertionCost(Load load, int position) {
+        if (position < 0 || position > this.length)
+            throw new IndexOutOfBoundsException("Position " + position + " out of range for " + this.length + " loads");
+        int index = load.getIndex();
+        LoadTable loads = load.getTable();
+        double fromX = position == 0 ? Constants.DEPOT_LOCATION[0] : this.table.dropX(this.route[position - 1]);
+        double fromY = position == 0 ? Constants.DEPOT_LOCATION[1] : this.table.dropY(this.route[position - 1]);
+        double added = DistanceKernel.distance(fromX, fromY, loads.pickupX(index), loads.pickupY(index))
+                + loads.pickupToDrop(index);
+        if (position == this.length)
+            return added + loads.dropToDepot(index) - this.returnDistance;
+
+        // The replaced leg is the rise in prefix distance up to the next drop-off, less the drive carrying that load
+        int next = this.route[position];
+        double replaced = this.prefixDistance[position] - (position == 0 ? 0.0 : this.prefixDistance[position - 1])
+                - this.table.pickupToDrop(next);
+        return added - replaced
+                + DistanceKernel.distance(loads.dropX(index), loads.dropY(index), this.table.pickupX(next), this.table.pickupY(next));
+    }
+
+    /**
+     * Adds a new load to the end of the route and extends the ledger: the working time grows by the drive from the last
+     * drop-off, or from the depot for the first load, to the load's pickup plus the drive to its drop-off.
      *
      * @param newLoad The new Load object to be added.
+     * @throws IllegalArgumentException if the load comes from another table than the loads already on the route.
      */
     public void addLoad(Load newLoad){
-        this.loads.add(newLoad);
+        if (this.table == null)
+            this.table = newLoad.getTable();
+        else if (newLoad.getTable() != this.table)
+            throw new IllegalArgumentException("Load " + newLoad.getLoadNumber() + " comes from another load table than the route");
+        int index = newLoad.getIndex();
+        double dropOffX = this.table.dropX(index);
+        double dropOffY = this.table.dropY(index);
+        double leg = DistanceKernel.distance(this.lastDropOffX, this.lastDropOffY, this.table.pickupX(index), this.table.pickupY(index))
+                + this.table.pickupToDrop(index);
+        if (this.length == this.route.length) {
+            this.route = Arrays.copyOf(this.route, this.length * 2);
+            this.prefixDistance = Arrays.copyOf(this.prefixDistance, this.length * 2);
+        }
+        this.route[this.length] = index;
+        this.prefixDistance[this.length] = getWorkingTime() + leg;
+        this.length++;
+        this.lastDropOffX = dropOffX;
+        this.lastDropOffY = dropOffY;
+        this.returnDistance = this.table.dropToDepot(index);
+        if (VERIFY_LEDGER)
+            verify();
     }
 
     /**
-     * Updates the total working time for this driver by adding the provided value.
+     * Cross-checks the ledger against the load coordinates: every prefix distance is recomputed by walking the route,
+     * and the route distance is compared with {@link Helper#getTotalDistance(List)}.
      *
-     * @param value The time value (in hours or appropriate unit) to add to the current working time.
+     * @throws IllegalStateException if the ledger differs from the recomputation by more than rounding.
      */
-    public void updateWorkingTime(double value){
-        this.workingTime +=value;
+    public void verify() {
+        double walked = 0;
+        double x = Constants.DEPOT_LOCATION[0];
+        double y = Constants.DEPOT_LOCATION[1];
+        for (int k = 0; k < this.length; k++) {
+            Load load = this.loadsView.get(k);
+            walked += DistanceKernel.distance(x, y, load.getPickUpX(), load.getPickUpY())
+                    + DistanceKernel.distance(load.getPickUpX(), load.getPickUpY(), load.getDropOffX(), load.getDropOffY());
+            checkClose("prefix distance at position " + k, this.prefixDistance[k], walked);
+            x = load.getDropOffX();
+            y = load.getDropOffY();
+        }
+        if (this.length > 0)
+            checkClose("route distance", getRouteDistance(), new Helper().getTotalDistance(this.loadsView));
+    }
+
+    private static void checkClose(String what, double ledger, double recomputed) {
+        if (Math.abs(ledger - recomputed) > VERIFY_TOLERANCE * Math.max(1.0, Math.abs(recomputed)))
+            throw new IllegalStateException("Driver ledger " + what + " is " + ledger + " but recomputes to " + recomputed);
+    }
+
+    /**
+     * The loads on the route as views of their table rows, created on access.
+     */
+    private final class LoadsView extends AbstractList<Load> implements RandomAccess {
+        @Override
+        public Load get(int position) {
+            if (position < 0 || position >= length)
+                throw new IndexOutOfBoundsException("Position " + position + " out of range for " + length + " loads");
+            return new Load(table, route[position]);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
     }
 }
@@ -2,24 +2,26 @@ package objects;
 
 /**
  * Represents a load that needs to be transported, characterized by its unique number and geographical coordinates for pickup and drop-off locations.
+ * A load is a flyweight view of one row of a {@link LoadTable}: it holds only the table and the load index and reads
+ * the coordinates from the table's columns, which may be off-heap, so creating one costs a small object and no copies.
  * Immutable after creation, this class provides methods to access the load's details but not to modify them.
  */
 public class Load {
-    private final int loadNumber;
-    private final double[] pickUpLocation;
-    private final double[] dropOffLocation;
+    private final LoadTable table;
+    private final int index;
 
     /**
-     * Constructs a new Load with a specified load number, pickup location, and drop-off location.
+     * Constructs a view of a load held in a load table.
      *
-     * @param loadNumber      The unique identifier for the load.
-     * @param pickUpLocation  An array of two doubles representing the geographical coordinates (latitude, longitude) of the pickup location.
-     * @param dropOffLocation An array of two doubles representing the geographical coordinates (latitude, longitude) of the drop-off location.
+     * @param table The table holding the load.
+     * @param index The load index, i.e. the load number minus one.
+     * @throws IndexOutOfBoundsException if the index is not a row of the table.
      */
-    public Load(int loadNumber, double[] pickUpLocation, double[] dropOffLocation) {
-        this.loadNumber=loadNumber;
-        this.pickUpLocation = pickUpLocation;
-        this.dropOffLocation = dropOffLocation;
+    public Load(LoadTable table, int index) {
+        if (index < 0 || index >= table.size())
+            throw new IndexOutOfBoundsException("Load index " + index + " out of range for " + table.size() + " loads");
+        this.table = table;
+        this.index = index;
     }
 
     /**
@@ -28,24 +30,80 @@ public class Load {
      * @return The unique identifier for this load.
      */
     public int getLoadNumber(){
-        return this.loadNumber;
+        return this.index + 1;
+    }
+
+    /**
+     * Retrieves the index of this load in its table.
+     *
+     * @return The load index, i.e. the load number minus one.
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Retrieves the table this load is a row of.
+     *
+     * @return The load table.
+     */
+    public LoadTable getTable() {
+        return this.table;
+    }
+
+    /**
+     * Retrieves the x coordinate of the pickup location of this load.
+     *
+     * @return The x coordinate of the pickup location.
+     */
+    public double getPickUpX() {
+        return this.table.pickupX(this.index);
+    }
+
+    /**
+     * Retrieves the y coordinate of the pickup location of this load.
+     *
+     * @return The y coordinate of the pickup location.
+     */
+    public double getPickUpY() {
+        return this.table.pickupY(this.index);
+    }
+
+    /**
+     * Retrieves the x coordinate of the drop-off location of this load.
+     *
+     * @return The x coordinate of the drop-off location.
+     */
+    public double getDropOffX() {
+        return this.table.dropX(this.index);
+    }
+
+    /**
+     * Retrieves the y coordinate of the drop-off location of this load.
+     *
+     * @return The y coordinate of the drop-off location.
+     */
+    public double getDropOffY() {
+        return this.table.dropY(this.index);
     }
 
     /**
      * Retrieves the geographical coordinates of the pickup location for this load.
+     * The array is created on every call; use {@link #getPickUpX()} and {@link #getPickUpY()} on hot paths.
      *
      * @return An array of two doubles representing the geographical coordinates (latitude, longitude).
      */
     public double[] getPickUpLocation() {
-        return this.pickUpLocation;
+        return new double[]{getPickUpX(), getPickUpY()};
     }
 
     /**
      * Retrieves the geographical coordinates of the drop-off location for this load.
+     * The array is created on every call; use {@link #getDropOffX()} and {@link #getDropOffY()} on hot paths.
      *
      * @return An array of two doubles representing the geographical coordinates (latitude, longitude).
      */
     public double[] getDropOffLocation() {
-        return this.dropOffLocation;
+        return new double[]{getDropOffX(), getDropOffY()};
     }
 }
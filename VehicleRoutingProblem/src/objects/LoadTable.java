@@ -0,0 +1,440 @@
+package objects;
+
+import contants.Constants;
+import helpers.DistanceKernel;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays view of all loads of a problem instance. Coordinates are held in contiguous primitive columns
+ * indexed by load index, where the load with load number {@code n} is stored at index {@code n - 1}.
+ * The columns of a table on the heap are plain arrays. An off-heap table keeps them in direct double buffers instead,
+ * either allocated outside the heap or pointing straight into a memory-mapped file, so an instance stored in binary
+ * form is used in place without copying; every read checks which kind of table it is on, which is the same for every
+ * load and so costs a heap table next to nothing.
+ * <p>
+ * Alongside the coordinates the table precomputes the distances that only depend on a single load: depot to pick-up,
+ * pick-up to drop-off and drop-off to depot. The solver reads them instead of recomputing them for every candidate driver.
+ * Immutable after creation.
+ * </p>
+ */
+public final class LoadTable {
+    private final int size;
+    // The columns of a heap table; null for an off-heap table
+    private final double[] pickupX;
+    private final double[] pickupY;
+    private final double[] dropX;
+    private final double[] dropY;
+    private final double[] depotToPickup;
+    private final double[] pickupToDrop;
+    private final double[] dropToDepot;
+    // The columns of an off-heap table; null for a heap table
+    private final DirectColumns direct;
+
+    /**
+     * Constructs a table from the nested array format produced by the data reader.
+     *
+     * @param inputLoads An array where each element holds the pickup coordinates followed by the drop-off coordinates of a load.
+     */
+    public LoadTable(double[][][] inputLoads) {
+        this(column(inputLoads, 0, 0), column(inputLoads, 0, 1), column(inputLoads, 1, 0), column(inputLoads, 1, 1));
+    }
+
+    private static double[] column(double[][][] inputLoads, int location, int axis) {
+        double[] column = new double[inputLoads.length];
+        for (int i = 0; i < column.length; i++)
+            column[i] = inputLoads[i][location][axis];
+        return column;
+    }
+
+    /**
+     * Constructs a table over existing coordinate columns. The arrays are used as they are, not copied,
+     * and must not be modified afterwards.
+     *
+     * @param pickupX The x coordinates of the pickup locations.
+     * @param pickupY The y coordinates of the pickup locations.
+     * @param dropX   The x coordinates of the drop-off locations.
+     * @param dropY   The y coordinates of the drop-off locations.
+     * @throws IllegalArgumentException if the columns differ in length.
+     */
+    public LoadTable(double[] pickupX, double[] pickupY, double[] dropX, double[] dropY) {
+        this(pickupX.length, withDistances(pickupX, pickupY, dropX, dropY), null);
+    }
+
+    /**
+     * Constructs a table over coordinate columns held in buffers, typically views of a memory-mapped file.
+     * Direct buffers are used as they are, indexed from position zero, and must not be modified afterwards; the
+     * precomputed distances are then kept off-heap as well. Buffers on the heap are copied into a heap table.
+     *
+     * @param pickupX The x coordinates of the pickup locations.
+     * @param pickupY The y coordinates of the pickup locations.
+     * @param dropX   The x coordinates of the drop-off locations.
+     * @param dropY   The y coordinates of the drop-off locations.
+     * @throws IllegalArgumentException if the columns differ in length.
+     */
+    public LoadTable(DoubleBuffer pickupX, DoubleBuffer pickupY, DoubleBuffer dropX, DoubleBuffer dropY) {
+        this(pickupX.limit(),
+                pickupX.isDirect() ? null : withDistances(toArray(pickupX), toArray(pickupY), toArray(dropX), toArray(dropY)),
+                pickupX.isDirect() ? DirectColumns.over(pickupX, pickupY, dropX, dropY) : null);
+    }
+
+    // Takes the columns of a heap table, coordinates then per-load distances, or those of an off-heap table
+    private LoadTable(int size, double[][] heap, DirectColumns direct) {
+        this.size = size;
+        this.pickupX = heap == null ? null : heap[0];
+        this.pickupY = heap == null ? null : heap[1];
+        this.dropX = heap == null ? null : heap[2];
+        this.dropY = heap == null ? null : heap[3];
+        this.depotToPickup = heap == null ? null : heap[4];
+        this.pickupToDrop = heap == null ? null : heap[5];
+        this.dropToDepot = heap == null ? null : heap[6];
+        this.direct = direct;
+    }
+
+    private static double[] toArray(DoubleBuffer column) {
+        double[] array = new double[column.limit()];
+        column.get(0, array);
+        return array;
+    }
+
+    private static double[][] withDistances(double[] pickupX, double[] pickupY, double[] dropX, double[] dropY) {
+        int size = pickupX.length;
+        if (pickupY.length != size || dropX.length != size || dropY.length != size)
+            throw new IllegalArgumentException("Coordinate columns must have the same length");
+        double[][] columns = {pickupX, pickupY, dropX, dropY, new double[size], new double[size], new double[size]};
+        for (int i = 0; i < size; i++)
+            putDistances(columns, i);
+        return columns;
+    }
+
+    // Computes the per-load distances of the load at an index of heap columns from its coordinates
+    private static void putDistances(double[][] columns, int i) {
+        double depotX = Constants.DEPOT_LOCATION[0];
+        double depotY = Constants.DEPOT_LOCATION[1];
+        double pX = columns[0][i], pY = columns[1][i], dX = columns[2][i], dY = columns[3][i];
+        columns[4][i] = DistanceKernel.distance(depotX, depotY, pX, pY);
+        columns[5][i] = DistanceKernel.distance(pX, pY, dX, dY);
+        columns[6][i] = DistanceKernel.distance(dX, dY, depotX, depotY);
+    }
+
+    /**
+     * Retrieves the number of loads in the table.
+     *
+     * @return The number of loads.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates the Load object for the load stored at the given index.
+     *
+     * @param index The load index, i.e. the load number minus one.
+     * @return A new flyweight Load reading the coordinates of that load from this table.
+     */
+    public Load toLoad(int index) {
+        return new Load(this, index);
+    }
+
+    /**
+     * Retrieves whether the coordinates and precomputed distances of this table are held outside the Java heap.
+     *
+     * @return true if the columns are direct buffers, e.g. views of a memory-mapped file.
+     */
+    public boolean isOffHeap() {
+        return direct != null;
+    }
+
+    /**
+     * Retrieves a table with the same loads whose columns are held outside the Java heap, so the heap used stays the
+     * same however many loads there are. The coordinates are copied into direct buffers unless they already are.
+     *
+     * @return This table if it is already off-heap, otherwise an off-heap copy.
+     */
+    public LoadTable toOffHeap() {
+        if (isOffHeap())
+            return this;
+        Builder builder = new Builder(size, true);
+        for (int i = 0; i < size; i++)
+            builder.add(pickupX[i], pickupY[i], dropX[i], dropY[i]);
+        return builder.build();
+    }
+
+    /**
+     * Creates a table holding some of the loads of this one, e.g. the loads of one part of a decomposed instance.
+     * The loads are numbered anew in the order given: the load at index {@code p} of the new table is the load at
+     * {@code indices[p]} of this one. The new table is off-heap if this one is.
+     *
+     * @param indices The indices of the loads to copy.
+     * @return A new table over copies of those loads.
+     */
+    public LoadTable select(int[] indices) {
+        Builder builder = new Builder(indices.length, isOffHeap());
+        for (int index : indices)
+            builder.add(pickupX(index), pickupY(index), dropX(index), dropY(index));
+        return builder.build();
+    }
+
+    /**
+     * Retrieves the x coordinate of the pickup location of a load.
+     *
+     * @param index The load index.
+     * @return The x coordinate of the pickup location.
+     */
+    public double pickupX(int index) {
+        return direct == null ? pickupX[index] : direct.pickupX.get(index);
+    }
+
+    /**
+     * Retrieves the y coordinate of the pickup location of a load.
+     *
+     * @param index The load index.
+     * @return The y coordinate of the pickup location.
+     */
+    public double pickupY(int index) {
+        return direct == null ? pickupY[index] : direct.pickupY.get(index);
+    }
+
+    /**
+     * Retrieves the x coordinate of the drop-off location of a load.
+     *
+     * @param index The load index.
+     * @return The x coordinate of the drop-off location.
+     */
+    public double dropX(int index) {
+        return direct == null ? dropX[index] : direct.dropX.get(index);
+    }
+
+    /**
+     * Retrieves the y coordinate of the drop-off location of a load.
+     *
+     * @param index The load index.
+     * @return The y coordinate of the drop-off location.
+     */
+    public double dropY(int index) {
+        return direct == null ? dropY[index] : direct.dropY.get(index);
+    }
+
+    /**
+     * Retrieves the precomputed distance from the depot to the pickup location of a load.
+     *
+     * @param index The load index.
+     * @return The distance from the depot to the pickup location.
+     */
+    public double depotToPickup(int index) {
+        return direct == null ? depotToPickup[index] : direct.depotToPickup.get(index);
+    }
+
+    /**
+     * Retrieves the precomputed distance from the pickup location to the drop-off location of a load.
+     *
+     * @param index The load index.
+     * @return The distance travelled while carrying the load.
+     */
+    public double pickupToDrop(int index) {
+        return direct == null ? pickupToDrop[index] : direct.pickupToDrop.get(index);
+    }
+
+    /**
+     * Retrieves the precomputed distance from the drop-off location of a load back to the depot.
+     *
+     * @param index The load index.
+     * @return The distance from the drop-off location to the depot.
+     */
+    public double dropToDepot(int index) {
+        return direct == null ? dropToDepot[index] : direct.dropToDepot.get(index);
+    }
+
+    /**
+     * Calculates the distance from the drop-off location of one load to the pickup location of another,
+     * i.e. the empty drive between carrying them one after the other.
+     *
+     * @param from The index of the load delivered first.
+     * @param to   The index of the load picked up next.
+     * @return The distance between the two locations.
+     */
+    public double dropToPickup(int from, int to) {
+        if (direct == null)
+            return DistanceKernel.distance(dropX[from], dropY[from], pickupX[to], pickupY[to]);
+        return DistanceKernel.distance(direct.dropX.get(from), direct.dropY.get(from), direct.pickupX.get(to),
+                direct.pickupY.get(to));
+    }
+
+    /**
+     * Collects loads one at a time into growing coordinate columns, for readers that do not know the number of loads
+     * up front and for loads that arrive one by one. The columns are heap arrays or, for an off-heap table, direct
+     * buffers, so no per-load objects are made either way. The per-load distances are computed as each load is added.
+     * <p>
+     * Rows are only ever appended and growing moves the columns to new storage, so a table built earlier keeps reading
+     * the loads it was built over while more are added; building is cheap and can be repeated.
+     * </p>
+     */
+    public static final class Builder {
+        // The columns of a heap table, coordinates then per-load distances; null for an off-heap table
+        private double[][] heap;
+        // The columns of an off-heap table; null for a heap table
+        private DirectColumns direct;
+        private int capacity;
+        private int size;
+
+        /**
+         * Constructs an empty builder.
+         *
+         * @param expectedSize The number of loads to make room for at first; the columns grow beyond it as needed.
+         * @param offHeap      Whether the table is held outside the Java heap.
+         */
+        public Builder(int expectedSize, boolean offHeap) {
+            this.capacity = Math.max(expectedSize, 16);
+            if (offHeap)
+                this.direct = new DirectColumns(capacity);
+            else
+                this.heap = new double[7][capacity];
+        }
+
+        /**
+         * Retrieves the number of loads added so far.
+         *
+         * @return The number of loads.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Appends a load; its load number is the number of loads added before it plus one.
+         *
+         * @param pickupX The x coordinate of the pickup location.
+         * @param pickupY The y coordinate of the pickup location.
+         * @param dropX   The x coordinate of the drop-off location.
+         * @param dropY   The y coordinate of the drop-off location.
+         * @return This builder.
+         */
+        public Builder add(double pickupX, double pickupY, double dropX, double dropY) {
+            if (size == capacity) {
+                int grown = (int) Math.min(Integer.MAX_VALUE / Double.BYTES, 2L * size);
+                if (grown == size)
+                    throw new IllegalStateException("Load table is full at " + size + " loads");
+                if (direct != null) {
+                    direct = direct.grow(size, grown);
+                } else {
+                    double[][] columns = new double[7][];
+                    for (int c = 0; c < columns.length; c++)
+                        columns[c] = Arrays.copyOf(heap[c], grown);
+                    heap = columns;
+                }
+                capacity = grown;
+            }
+            if (direct != null) {
+                direct.put(size, pickupX, pickupY, dropX, dropY);
+            } else {
+                heap[0][size] = pickupX;
+                heap[1][size] = pickupY;
+                heap[2][size] = dropX;
+                heap[3][size] = dropY;
+                putDistances(heap, size);
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * Builds a table over the loads added so far. The table shares the builder's columns rather than copying them,
+         * so building takes constant time, and it is not changed by loads added afterwards.
+         *
+         * @return The table.
+         */
+        public LoadTable build() {
+            // Spare capacity is left unused rather than copied away, which would briefly need the columns twice
+            return new LoadTable(size, heap, direct == null ? null : direct.view(size));
+        }
+    }
+
+    /**
+     * The columns of an off-heap table, in direct buffers indexed from position zero.
+     */
+    private static final class DirectColumns {
+        private final DoubleBuffer pickupX;
+        private final DoubleBuffer pickupY;
+        private final DoubleBuffer dropX;
+        private final DoubleBuffer dropY;
+        private final DoubleBuffer depotToPickup;
+        private final DoubleBuffer pickupToDrop;
+        private final DoubleBuffer dropToDepot;
+
+        // Allocates empty columns with room for the given number of loads
+        DirectColumns(int capacity) {
+            this(allocate(capacity), allocate(capacity), allocate(capacity), allocate(capacity),
+                    allocate(capacity), allocate(capacity), allocate(capacity));
+        }
+
+        private DirectColumns(DoubleBuffer pickupX, DoubleBuffer pickupY, DoubleBuffer dropX, DoubleBuffer dropY,
+                              DoubleBuffer depotToPickup, DoubleBuffer pickupToDrop, DoubleBuffer dropToDepot) {
+            this.pickupX = pickupX;
+            this.pickupY = pickupY;
+            this.dropX = dropX;
+            this.dropY = dropY;
+            this.depotToPickup = depotToPickup;
+            this.pickupToDrop = pickupToDrop;
+            this.dropToDepot = dropToDepot;
+        }
+
+        // Uses existing coordinate buffers and precomputes the per-load distances next to them
+        static DirectColumns over(DoubleBuffer pickupX, DoubleBuffer pickupY, DoubleBuffer dropX, DoubleBuffer dropY) {
+            int size = pickupX.limit();
+            if (pickupY.limit() != size || dropX.limit() != size || dropY.limit() != size)
+                throw new IllegalArgumentException("Coordinate columns must have the same length");
+            DirectColumns columns = new DirectColumns(pickupX, pickupY, dropX, dropY,
+                    allocate(size), allocate(size), allocate(size));
+            for (int i = 0; i < size; i++)
+                columns.putDistances(i);
+            return columns;
+        }
+
+        private static DoubleBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+
+        void put(int i, double pX, double pY, double dX, double dY) {
+            pickupX.put(i, pX);
+            pickupY.put(i, pY);
+            dropX.put(i, dX);
+            dropY.put(i, dY);
+            putDistances(i);
+        }
+
+        private void putDistances(int i) {
+            double depotX = Constants.DEPOT_LOCATION[0];
+            double depotY = Constants.DEPOT_LOCATION[1];
+            double pX = pickupX.get(i), pY = pickupY.get(i), dX = dropX.get(i), dY = dropY.get(i);
+            depotToPickup.put(i, DistanceKernel.distance(depotX, depotY, pX, pY));
+            pickupToDrop.put(i, DistanceKernel.distance(pX, pY, dX, dY));
+            dropToDepot.put(i, DistanceKernel.distance(dX, dY, depotX, depotY));
+        }
+
+        // Copies the first size loads into new columns with room for more
+        DirectColumns grow(int size, int capacity) {
+            return new DirectColumns(grow(pickupX, size, capacity), grow(pickupY, size, capacity),
+                    grow(dropX, size, capacity), grow(dropY, size, capacity), grow(depotToPickup, size, capacity),
+                    grow(pickupToDrop, size, capacity), grow(dropToDepot, size, capacity));
+        }
+
+        private static DoubleBuffer grow(DoubleBuffer column, int size, int capacity) {
+            DoubleBuffer grown = allocate(capacity);
+            grown.put(column.duplicate().limit(size)).clear();
+            return grown;
+        }
+
+        // Views of the first size loads, sharing these columns
+        DirectColumns view(int size) {
+            return new DirectColumns(view(pickupX, size), view(pickupY, size), view(dropX, size), view(dropY, size),
+                    view(depotToPickup, size), view(pickupToDrop, size), view(dropToDepot, size));
+        }
+
+        private static DoubleBuffer view(DoubleBuffer column, int size) {
+            return column.duplicate().limit(size).slice();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package service;
+
+import objects.Driver;
+import objects.LoadTable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solves an instance within a time limit, publishing every better assignment it finds, so there is an answer to give
+ * at any moment and the answer keeps improving until the deadline.
+ * <p>
+ * The search runs in stages, each publishing its result when it beats the best so far:
+ * <ol>
+ *     <li>{@code dispatch}: one pass of the {@link Dispatcher}, a feasible assignment in linear time,</li>
+ *     <li>{@code greedy}: the construction of {@link Solution#solve()},</li>
+ *     <li>{@code savings}: the {@link ClarkeWrightSolver},</li>
+ *     <li>{@code improve}: the {@link LocalSearch} on the best assignment, publishing after each improving round,</li>
+ *     <li>{@code restart-n}: seeded perturbed greedy constructions, each improved by the local search, until stopped.</li>
+ * </ol>
+ * The dispatch stage always runs to its end and the time limit only starts counting once it has published, so there
+ * is an assignment covering every load however short the limit. After that the search stops when the deadline
+ * passes, when {@link #cancel()} is called or when the thread running it is interrupted. The local search stops
+ * within a fraction of a millisecond; a construction in progress runs to its end first, which is why
+ * {@link #solve(long)} runs the search on its own thread and returns the best assignment as soon as the deadline
+ * passes, without waiting for it.
+ * </p>
+ * <p>
+ * Every published assignment is recorded as a {@link Snapshot} with the time since the start and its cost, for
+ * plotting convergence; {@link #getBest()} can be read from any thread at any time.
+ * </p>
+ * <p>
+ * Usage example:
+ * <pre>
+ *     AnytimeSolver anytime = new AnytimeSolver(solution, 42L);
+ *     AnytimeSolver.Snapshot best = anytime.solve(2000);
+ *     solution.printResult(best.getDrivers());
+ * </pre>
+ * </p>
+ */
+public class AnytimeSolver {
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+    // Published assignments must be cheaper than the best by more than this, so rounding noise is not reported
+    private static final double MIN_IMPROVEMENT = 1e-9;
+
+    private final Solution solution;
+    private final long seed;
+    private final AtomicReference<Snapshot> best = new AtomicReference<>();
+    private final List<Snapshot> history = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstPublished = new CountDownLatch(1);
+    // Shared by the improve and restart stages, so the candidate lists are built once
+    private final LocalSearch search;
+    private volatile boolean cancelled;
+    private long startNanos;
+    private long deadlineNanos;
+
+    /**
+     * A published assignment, with when and at what cost it was found.
+     */
+    public static final class Snapshot {
+        private final long elapsedNanos;
+        private final long timestampMillis;
+        private final double cost;
+        private final List<Driver> drivers;
+        private final String stage;
+
+        private Snapshot(long elapsedNanos, double cost, List<Driver> drivers, String stage) {
+            this.elapsedNanos = elapsedNanos;
+            this.timestampMillis = System.currentTimeMillis();
+            this.cost = cost;
+            this.drivers = Collections.unmodifiableList(drivers);
+            this.stage = stage;
+        }
+
+        /**
+         * Retrieves the time from the start of the search to when this assignment was found.
+         *
+         * @return The elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Retrieves the wall clock time this assignment was found at.
+         *
+         * @return The time in milliseconds since the epoch.
+         */
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        /**
+         * Retrieves the total cost of this assignment.
+         *
+         * @return The cost of every driver plus the distance they drive.
+         */
+        public double getCost() {
+            return cost;
+        }
+
+        /**
+         * Retrieves the drivers of this assignment. They are not changed by the search after being published.
+         *
+         * @return An unmodifiable list of the drivers with their assigned loads.
+         */
+        public List<Driver> getDrivers() {
+            return drivers;
+        }
+
+        /**
+         * Retrieves the stage of the search that found this assignment.
+         *
+         * @return The stage name, e.g. {@code greedy} or {@code restart-3}.
+         */
+        public String getStage() {
+            return stage;
+        }
+    }
+
+    /**
+     * Constructs an anytime solver.
+     *
+     * @param solution The problem instance to solve.
+     * @param seed     The base seed of the perturbed restarts.
+     */
+    public AnytimeSolver(Solution solution, long seed) {
+        this.solution = solution;
+        this.seed = seed;
+        this.search = new LocalSearch(solution.getTable(), 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Searches on a new thread until the time limit passes or the search is cancelled, then returns the best
+     * assignment found, leaving a construction still in progress to stop on its own. The time limit counts from when
+     * the dispatch stage has published its assignment.
+     *
+     * @param timeLimitMillis The time the search may take after the first assignment, in milliseconds.
+     * @return The best assignment found.
+     * @throws IllegalStateException if the calling thread is interrupted while waiting, in which case the search is
+     *                               cancelled, or if the search failed before publishing an assignment.
+     */
+    public Snapshot solve(long timeLimitMillis) {
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            try {
+                search(timeLimitMillis);
+            } finally {
+                firstPublished.countDown();
+                finished.countDown();
+            }
+        }, "vrp-anytime");
+        worker.setDaemon(true);
+        worker.start();
+        try {
+            firstPublished.await();
+            if (best.get() == null)
+                throw new IllegalStateException("The search stopped before finding an assignment");
+            finished.await(timeLimitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving", e);
+        } finally {
+            cancel();
+            worker.interrupt();
+        }
+        return best.get();
+    }
+
+    /**
+     * Runs the search on the calling thread until the time limit passes, the search is cancelled or the thread is
+     * interrupted, publishing every improvement as it is found. The dispatch stage always runs first and the time
+     * limit counts from when it has published.
+     *
+     * @param timeLimitMillis The time the search may take after the first assignment, in milliseconds.
+     * @return The best assignment found.
+     */
+    public Snapshot search(long timeLimitMillis) {
+        startNanos = System.nanoTime();
+        dispatch();
+        deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis);
+        firstPublished.countDown();
+        try {
+            runStages();
+        } catch (IllegalStateException e) {
+            // The parallel stages report an interrupt this way; it only means the search was stopped
+            if (!stopped())
+                throw e;
+        }
+        return best.get();
+    }
+
+    private void dispatch() {
+        LoadTable table = solution.getTable();
+        Dispatcher dispatcher = new Dispatcher();
+        for (int index : solution.loadIndices())
+            dispatcher.addLoad(table.toLoad(index));
+        publish(dispatcher.snapshot().toDrivers(), "dispatch");
+    }
+
+    private void runStages() {
+        if (stopped() || solution.getLoadCount() == 0)
+            return;
+        publish(solution.fork().solve(), "greedy");
+        if (stopped())
+            return;
+        publish(new ClarkeWrightSolver().solve(solution), "savings");
+        if (stopped())
+            return;
+        improve(best.get().getDrivers(), "improve");
+
+        for (int start = 1; !stopped(); start++) {
+            List<Driver> drivers = solution.fork().solvePerturbed(new SplittableRandom(seed + start * SEED_INCREMENT),
+                    MultiStartSolver.DEFAULT_ORDER_NOISE, MultiStartSolver.DEFAULT_TIE_NOISE);
+            if (!stopped())
+                improve(drivers, "restart-" + start);
+        }
+    }
+
+    /**
+     * Runs the local search on an assignment for the time left, publishing after every improving round.
+     */
+    private void improve(List<Driver> drivers, String stage) {
+        long millisLeft = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        search.setTimeBudget(Math.max(millisLeft, 0));
+        search.setProgressListener(improved -> publish(improved, stage));
+        publish(search.improve(drivers), stage);
+    }
+
+    /**
+     * Makes an assignment the best so far if it is cheaper than the current best.
+     */
+    private void publish(List<Driver> drivers, String stage) {
+        if (drivers.isEmpty() && solution.getLoadCount() > 0)
+            return;
+        double cost = solution.getTotalCost(drivers);
+        Snapshot current = best.get();
+        if (current != null && !(cost < current.getCost() - MIN_IMPROVEMENT))
+            return;
+        Snapshot snapshot = new Snapshot(System.nanoTime() - startNanos, cost, drivers, stage);
+        best.set(snapshot);
+        history.add(snapshot);
+    }
+
+    private boolean stopped() {
+        return cancelled || Thread.currentThread().isInterrupted() || System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Stops the search at its next check. Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        search.cancel();
+    }
+
+    /**
+     * Retrieves the best assignment published so far. Safe to call from any thread, during or after the search.
+     *
+     * @return The best assignment, or null if none has been published yet.
+     */
+    public Snapshot getBest() {
+        return best.get();
+    }
+
+    /**
+     * Retrieves every assignment published, each cheaper than the one before, in the order they were found.
+     *
+     * @return An unmodifiable view of the published assignments.
+     */
+    public List<Snapshot> getHistory() {
+        return Collections.unmodifiableList(history);
+    }
+}
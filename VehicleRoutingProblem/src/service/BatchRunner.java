@@ -0,0 +1,229 @@
+package service;
+
+import objects.Driver;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Solves many independent problem instances concurrently on a bounded work-stealing pool.
+ * Each instance is read, solved and written by its own task with its own {@link Solution}, so no mutable state is
+ * shared between instances. The routes of every instance are written to {@code <instance name>.out} in the output
+ * directory, in the same format {@link Solution#printResult(List)} prints.
+ * <p>
+ * Usage example:
+ * <pre>
+ *     BatchRunner runner = new BatchRunner(Path.of("results"), 8);
+ *     List&lt;BatchRunner.InstanceResult&gt; results = runner.run(BatchRunner.findInstances("TrainingData"));
+ *     runner.printSummary(results, System.out);
+ * </pre>
+ * </p>
+ */
+public class BatchRunner {
+    private final Path outputDirectory;
+    private final int threads;
+
+    /**
+     * Constructs a batch runner.
+     *
+     * @param outputDirectory The directory the per instance results are written to; created if missing.
+     * @param threads         The maximum number of instances solved at the same time.
+     * @throws IllegalArgumentException if threads is not positive.
+     */
+    public BatchRunner(Path outputDirectory, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        this.outputDirectory = outputDirectory;
+        this.threads = threads;
+    }
+
+    /**
+     * Lists the instance files selected by a directory or a glob. A directory selects every {@code .txt} and
+     * {@code .vrpb} file directly inside it; a glob such as {@code TrainingData/problem*.txt} is matched against the
+     * file names in its parent directory.
+     * <p>
+     * Files that only differ in their extension, such as a text instance and the binary file converted from it, hold
+     * the same instance and would write the same result file, so only one of them is selected: the binary file,
+     * which is read faster.
+     * </p>
+     *
+     * @param directoryOrGlob A directory path or a glob over file names.
+     * @return The matching files, one per instance name, sorted by path.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public static List<Path> findInstances(String directoryOrGlob) throws IOException {
+        Path path = Path.of(directoryOrGlob);
+        Path directory;
+        String pattern;
+        if (Files.isDirectory(path)) {
+            directory = path;
+            pattern = "*.{txt," + BinaryInstanceFormat.FILE_EXTENSION.substring(1) + "}";
+        } else {
+            directory = path.getParent() == null ? Path.of(".") : path.getParent();
+            pattern = path.getFileName().toString();
+        }
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + pattern);
+        Map<String, Path> instances = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && matcher.matches(file.getFileName()))
+                    instances.merge(stripExtension(file.getFileName().toString()), file, BatchRunner::preferBinary);
+            }
+        }
+        List<Path> sorted = new ArrayList<>(instances.values());
+        sorted.sort(null);
+        return sorted;
+    }
+
+    private static Path preferBinary(Path first, Path second) {
+        if (second.getFileName().toString().endsWith(BinaryInstanceFormat.FILE_EXTENSION))
+            return second;
+        if (first.getFileName().toString().endsWith(BinaryInstanceFormat.FILE_EXTENSION))
+            return first;
+        // Neither is binary; keep the choice independent of the order the directory is listed in
+        return first.compareTo(second) <= 0 ? first : second;
+    }
+
+    /**
+     * Solves the given instances, at most {@code threads} at a time, and writes their routes to the output directory.
+     * A failing instance does not stop the others; its error is recorded in its result.
+     *
+     * @param instances The instance files to solve.
+     * @return One result per instance, in the order the instances were given.
+     * @throws IOException If the output directory cannot be created.
+     */
+    public List<InstanceResult> run(List<Path> instances) throws IOException {
+        Files.createDirectories(outputDirectory);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<InstanceResult>> tasks = new ArrayList<>();
+            for (Path instance : instances)
+                tasks.add(pool.submit(() -> solveInstance(instance)));
+            List<InstanceResult> results = new ArrayList<>();
+            for (ForkJoinTask<InstanceResult> task : tasks)
+                results.add(task.join());
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private InstanceResult solveInstance(Path instance) {
+        long start = System.nanoTime();
+        String name = instance.getFileName().toString();
+        try {
+            Solution solution = new Solution(BinaryInstanceFormat.readAny(instance.toString()));
+            List<Driver> drivers = solution.solve();
+            Path output = outputDirectory.resolve(stripExtension(name) + ".out");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(output))) {
+                solution.printResult(drivers, out);
+            }
+            return new InstanceResult(name, solution.getLoadCount(), drivers.size(), solution.getTotalCost(drivers),
+                    System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            return new InstanceResult(name, 0, 0, Double.NaN, System.nanoTime() - start, e);
+        }
+    }
+
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Prints one line per instance with its cost, driver count and wall time, followed by the totals.
+     *
+     * @param results The results returned by {@link #run(List)}.
+     * @param out     The stream to print to.
+     */
+    public void printSummary(List<InstanceResult> results, PrintStream out) {
+        out.printf("%-24s %8s %8s %14s %10s%n", "instance", "loads", "drivers", "cost", "wall ms");
+        long totalLoads = 0;
+        long totalDrivers = 0;
+        double totalCost = 0;
+        long totalNanos = 0;
+        int failed = 0;
+        for (InstanceResult result : results) {
+            if (result.getError() != null) {
+                failed++;
+                out.printf("%-24s FAILED: %s%n", result.getName(), result.getError());
+                continue;
+            }
+            out.printf("%-24s %8d %8d %14.2f %10.1f%n", result.getName(), result.getLoadCount(), result.getDriverCount(),
+                    result.getTotalCost(), result.getWallNanos() / 1e6);
+            totalLoads += result.getLoadCount();
+            totalDrivers += result.getDriverCount();
+            totalCost += result.getTotalCost();
+            totalNanos += result.getWallNanos();
+        }
+        out.printf("%-24s %8d %8d %14.2f %10.1f%n", "total (" + (results.size() - failed) + " solved)", totalLoads,
+                totalDrivers, totalCost, totalNanos / 1e6);
+        if (failed > 0)
+            out.println(failed + " instance(s) failed");
+    }
+
+    /**
+     * The outcome of solving one instance. Immutable.
+     */
+    public static final class InstanceResult {
+        private final String name;
+        private final int loadCount;
+        private final int driverCount;
+        private final double totalCost;
+        private final long wallNanos;
+        private final Exception error;
+
+        InstanceResult(String name, int loadCount, int driverCount, double totalCost, long wallNanos, Exception error) {
+            this.name = name;
+            this.loadCount = loadCount;
+            this.driverCount = driverCount;
+            this.totalCost = totalCost;
+            this.wallNanos = wallNanos;
+            this.error = error;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getLoadCount() {
+            return loadCount;
+        }
+
+        public int getDriverCount() {
+            return driverCount;
+        }
+
+        public double getTotalCost() {
+            return totalCost;
+        }
+
+        /**
+         * Retrieves the wall time spent on the instance: reading, solving and writing its result.
+         *
+         * @return The wall time in nanoseconds.
+         */
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * Retrieves the error that stopped the instance from being solved.
+         *
+         * @return The error, or null if the instance was solved.
+         */
+        public Exception getError() {
+            return error;
+        }
+    }
+}
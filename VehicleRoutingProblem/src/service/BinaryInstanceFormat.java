@@ -0,0 +1,198 @@
+package service;
+
+import contants.Constants;
+import objects.LoadTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes problem instances in a compact, versioned binary columnar format, so that instances solved
+ * repeatedly are parsed once and afterwards mapped straight into the solver's load table.
+ * <p>
+ * Layout, all values little-endian:
+ * <pre>
+ *  offset  size     field
+ *  0       4        magic "VRPB"
+ *  4       4        format version (int), currently 1
+ *  8       8        load count n (long)
+ *  16      8        depot x (double)
+ *  24      8        depot y (double)
+ *  32      8n       pickup x column
+ *  32+8n   8n       pickup y column
+ *  32+16n  8n       drop-off x column
+ *  32+24n  8n       drop-off y column
+ * </pre>
+ * Loads are stored in load number order, so the load with load number {@code k} is at index {@code k - 1} of each column.
+ * The header keeps every column 8-byte aligned.
+ * </p>
+ */
+public final class BinaryInstanceFormat {
+    public static final String FILE_EXTENSION = ".vrpb";
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'V', 'R', 'P', 'B'};
+    private static final int HEADER_SIZE = 32;
+    private static final int WRITE_CHUNK_SIZE = 1 << 16;
+
+    // Prevent instantiation
+    private BinaryInstanceFormat() {
+        throw new AssertionError("Cannot instantiate service.BinaryInstanceFormat class");
+    }
+
+    /**
+     * Checks whether a file is in the binary format, by its extension or, failing that, by its magic bytes.
+     *
+     * @param filePath The path of the file to check.
+     * @return true if the file should be read with {@link #read(String)}.
+     * @throws IOException If an I/O error occurs while reading the magic bytes.
+     */
+    public static boolean isBinary(String filePath) throws IOException {
+        if (filePath.endsWith(FILE_EXTENSION))
+            return true;
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until the magic is complete or the file ends
+            }
+            return !magic.hasRemaining() && ByteBuffer.wrap(MAGIC).equals(magic.flip());
+        }
+    }
+
+    /**
+     * Converts an instance from the text format read by {@link DataReader} to the binary format.
+     *
+     * @param textPath   The path of the text file to read.
+     * @param binaryPath The path of the binary file to write; replaced if it exists.
+     * @return The number of loads converted.
+     * @throws IOException If an I/O error occurs, or the text file is malformed.
+     */
+    public static int convert(String textPath, String binaryPath) throws IOException {
+        LoadTable table = DataReader.readFileMapped(textPath);
+        write(table, binaryPath);
+        return table.size();
+    }
+
+    /**
+     * Writes a load table in the binary format.
+     *
+     * @param table      The loads to write.
+     * @param binaryPath The path of the binary file to write; replaced if it exists.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public static void write(LoadTable table, String binaryPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(binaryPath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(table.size())
+                    .putDouble(Constants.DEPOT_LOCATION[0])
+                    .putDouble(Constants.DEPOT_LOCATION[1]);
+            for (int column = 0; column < 4; column++) {
+                for (int i = 0; i < table.size(); i++) {
+                    if (!buffer.hasRemaining())
+                        drain(buffer, channel);
+                    buffer.putDouble(columnValue(table, column, i));
+                }
+            }
+            drain(buffer, channel);
+        }
+    }
+
+    private static double columnValue(LoadTable table, int column, int index) {
+        switch (column) {
+            case 0:
+                return table.pickupX(index);
+            case 1:
+                return table.pickupY(index);
+            case 2:
+                return table.dropX(index);
+            default:
+                return table.dropY(index);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Maps a binary instance file into a load table. The coordinate columns of the table are views of the mapped file,
+     * so no coordinate is copied or decoded; the mapping stays valid after the file is closed.
+     *
+     * @param binaryPath The path of the binary file to read.
+     * @return A load table backed by the mapped file.
+     * @throws IOException If an I/O error occurs, or the file is not a valid instance of a supported version.
+     */
+    public static LoadTable read(String binaryPath) throws IOException {
+        long start = SolverMetrics.start();
+        try (FileChannel channel = FileChannel.open(Path.of(binaryPath), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE)
+                throw new IOException("Not a binary instance file, too short for the header: " + binaryPath);
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get(i) != MAGIC[i])
+                    throw new IOException("Not a binary instance file, bad magic bytes: " + binaryPath);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION)
+                throw new IOException("Unsupported binary instance version " + version + ", expected " + VERSION + ": " + binaryPath);
+            long count = header.getLong(8);
+            if (count < 0 || count > Integer.MAX_VALUE / Double.BYTES)
+                throw new IOException("Invalid load count " + count + ": " + binaryPath);
+            if (header.getDouble(16) != Constants.DEPOT_LOCATION[0] || header.getDouble(24) != Constants.DEPOT_LOCATION[1])
+                throw new IOException("Instance depot (" + header.getDouble(16) + "," + header.getDouble(24)
+                        + ") does not match the configured depot: " + binaryPath);
+            long columnSize = count * Double.BYTES;
+            if (fileSize != HEADER_SIZE + 4 * columnSize)
+                throw new IOException("Binary instance file size " + fileSize + " does not match its load count " + count + ": " + binaryPath);
+
+            // Each column is mapped on its own so instances are not limited by the maximum size of a single mapping
+            DoubleBuffer[] columns = new DoubleBuffer[4];
+            for (int column = 0; column < 4; column++) {
+                columns[column] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + column * columnSize, columnSize)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asDoubleBuffer();
+            }
+            LoadTable table = new LoadTable(columns[0], columns[1], columns[2], columns[3]);
+            SolverMetrics.stop(SolverMetrics.Phase.PARSE, start);
+            return table;
+        }
+    }
+
+    /**
+     * Reads a file that is either in the binary format or in the text format read by {@link DataReader}.
+     *
+     * @param filePath The path of the file to read.
+     * @return A load table holding the instance.
+     * @throws IOException If an I/O error occurs, or the file is malformed.
+     */
+    public static LoadTable readAny(String filePath) throws IOException {
+        return isBinary(filePath) ? read(filePath) : DataReader.readFileMapped(filePath);
+    }
+
+    /**
+     * Returns the path a converted instance would get by default: the input path with its extension replaced.
+     *
+     * @param textPath The path of the text file.
+     * @return The path for the binary file.
+     */
+    public static String defaultBinaryPath(String textPath) {
+        Path path = Path.of(textPath);
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        Path parent = path.getParent();
+        return (parent == null ? Path.of(base + FILE_EXTENSION) : parent.resolve(base + FILE_EXTENSION)).toString();
+    }
+}
@@ -0,0 +1,168 @@
+package service;
+
+import contants.Constants;
+import helpers.NeighbourLists;
+import objects.Driver;
+import objects.LoadTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Builds routes with the Clarke-Wright savings algorithm, adapted to loads that each have a pick-up and a drop-off.
+ * <p>
+ * Every load starts on a route of its own: depot, pick-up, drop-off, depot. Appending the route starting with load
+ * {@code j} to the route ending with load {@code i} saves one driver and
+ * {@code s(i, j) = dropOff(i)->depot + depot->pickUp(j) - dropOff(i)->pickUp(j)} in distance. Merges are applied in
+ * order of decreasing saving, as long as {@code i} still ends its route, {@code j} still starts its route, they are on
+ * different routes, and the merged route, including the drive back to the depot, stays within the maximum working
+ * time.
+ * </p>
+ * <p>
+ * Scoring every ordered pair of loads would take quadratic time and memory, so only the pairs where {@code j}'s
+ * pick-up is among the {@code neighbours} nearest to {@code i}'s drop-off are scored. The candidates are taken from
+ * {@link NeighbourLists} and scored in parallel. Each saving is encoded into a single {@code long}, the saving as float
+ * bits in the high half and the position of the pair in the neighbour table in the low half, so the whole savings list
+ * is one primitive array sorted with {@link Arrays#parallelSort(long[])}. Memory stays linear in the number of loads.
+ * </p>
+ * <p>
+ * Only the loads of the {@link Solution} are routed. When it is over part of its table, the savings are computed over
+ * a compact table of just those loads, and the routes are mapped back to the original load numbers at the end.
+ * </p>
+ */
+public class ClarkeWrightSolver implements SolverStrategy {
+    public static final int DEFAULT_NEIGHBOURS = 24;
+
+    private final int neighbours;
+    private final int parallelism;
+
+    /**
+     * Constructs a solver with {@link #DEFAULT_NEIGHBOURS} candidates per load, using every available processor.
+     */
+    public ClarkeWrightSolver() {
+        this(DEFAULT_NEIGHBOURS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a solver.
+     *
+     * @param neighbours  The number of candidate successors scored for each load.
+     * @param parallelism The number of threads scoring candidates.
+     * @throws IllegalArgumentException if neighbours or parallelism is not positive.
+     */
+    public ClarkeWrightSolver(int neighbours, int parallelism) {
+        if (neighbours < 1)
+            throw new IllegalArgumentException("Number of neighbours must be positive: " + neighbours);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        this.neighbours = neighbours;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public List<Driver> solve(Solution solution) {
+        long start = SolverMetrics.start();
+        // The savings are computed over the loads of the solution; load p of the table below is load ids[p]
+        int[] ids = solution.loadIndices();
+        LoadTable table = solution.coversTable() ? solution.getTable() : solution.getTable().select(ids);
+        NeighbourLists successors = NeighbourLists.build(table, neighbours, parallelism);
+        long[] savings = new long[table.size() * successors.getK()];
+        if (successors.getK() > 0)
+            scoreCandidates(table, successors, savings);
+        List<Driver> drivers = merge(table, successors, savings, solution.getTable(), ids);
+        SolverMetrics.stop(SolverMetrics.Phase.CONSTRUCTION, start);
+        return drivers;
+    }
+
+    /**
+     * Fills the encoded savings list, one load per task.
+     */
+    private void scoreCandidates(LoadTable table, NeighbourLists successors, long[] savings) {
+        int k = successors.getK();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, table.size()).parallel().forEach(i -> {
+                for (int rank = 0; rank < k; rank++) {
+                    // Savings are never negative by the triangle inequality; the floor guards against rounding
+                    float saving = (float) Math.max(0, saving(table, i, successors.get(i, rank)));
+                    savings[i * k + rank] = ((long) Float.floatToIntBits(saving) << 32) | (i * k + rank);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scoring savings", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Scoring savings failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        Arrays.parallelSort(savings);
+    }
+
+    private static double saving(LoadTable table, int i, int j) {
+        return table.dropToDepot(i) + table.depotToPickup(j) - table.dropToPickup(i, j);
+    }
+
+    /**
+     * Applies the merges in order of decreasing saving and turns the resulting routes into drivers carrying the loads
+     * of the original table.
+     */
+    private static List<Driver> merge(LoadTable table, NeighbourLists successors, long[] savings,
+                                      LoadTable original, int[] ids) {
+        int n = table.size();
+        int k = successors.getK();
+        int[] next = new int[n];
+        int[] previous = new int[n];
+        // Union-find over loads; the duration of a route is kept at its root
+        int[] parent = new int[n];
+        double[] duration = new double[n];
+        Arrays.fill(next, -1);
+        Arrays.fill(previous, -1);
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            duration[i] = table.depotToPickup(i) + table.pickupToDrop(i) + table.dropToDepot(i);
+        }
+
+        for (int s = savings.length - 1; s >= 0; s--) {
+            int c = (int) savings[s];
+            int i = c / k;
+            int j = successors.get(i, c - i * k);
+            if (next[i] != -1 || previous[j] != -1)
+                continue;
+            int routeI = find(parent, i);
+            int routeJ = find(parent, j);
+            if (routeI == routeJ)
+                continue;
+            double merged = duration[routeI] + duration[routeJ] - saving(table, i, j);
+            if (!(merged < Constants.MAX_WORKING_TIME))
+                continue;
+            next[i] = j;
+            previous[j] = i;
+            parent[routeJ] = routeI;
+            duration[routeI] = merged;
+        }
+
+        List<Driver> drivers = new ArrayList<>();
+        for (int head = 0; head < n; head++) {
+            if (previous[head] != -1)
+                continue;
+            Driver driver = new Driver();
+            for (int load = head; load != -1; load = next[load])
+                driver.addLoad(original.toLoad(ids[load]));
+            drivers.add(driver);
+        }
+        return drivers;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
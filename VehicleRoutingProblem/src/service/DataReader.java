@@ -1,10 +1,10 @@
 package service;
 
+import objects.LoadTable;
+
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * This class is responsible for reading data from a file and parsing it into a multidimensional array.
@@ -38,41 +38,113 @@ public class DataReader {
      * @throws IOException If an I/O error occurs while reading from the file.
      */
     public static double[][][] readFile(String filePath) throws IOException {
-        List<double[][]> dataList = new ArrayList<>();
-
+        long start = SolverMetrics.start();
+        double[][][] dataArray;
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            boolean isFirstLine = true; // to skip the header line
+            dataArray = read(reader);
+        }
+        SolverMetrics.stop(SolverMetrics.Phase.PARSE, start);
+        return dataArray;
+    }
 
-            // Parse the lines
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue;
-                }
-                String[] parts = line.split(" ");
+    /**
+     * Reads an instance in the format described for {@link #readFile(String)} from a reader, up to its end,
+     * e.g. one request received by the {@link SolverServer}.
+     *
+     * @param reader The reader to read from; it is not closed.
+     * @return A three-dimensional array of doubles, where each inner 2D array contains two elements:
+     *         an array with the pickup coordinates and an array with the drop-off coordinates.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    public static double[][][] read(BufferedReader reader) throws IOException {
+        LoadTable table = readTable(reader, false);
+        double[][][] dataArray = new double[table.size()][][];
+        for (int i = 0; i < dataArray.length; i++) {
+            dataArray[i] = new double[][]{new double[]{table.pickupX(i), table.pickupY(i)},
+                    new double[]{table.dropX(i), table.dropY(i)}};
+        }
+        return dataArray;
+    }
 
-                // Parse the coordinates, removing parentheses and splitting by comma
-                String[] pickupCoords = parts[1].substring(1, parts[1].length() - 1).split(",");
-                String[] dropoffCoords = parts[2].substring(1, parts[2].length() - 1).split(",");
+    /**
+     * Reads the provided file in the format described for {@link #readFile(String)} straight into the columns of a load
+     * table, without holding the records as arrays first. With off-heap storage the heap used while reading and
+     * solving stays the same however many loads the file has.
+     *
+     * @param filePath The path of the file to read.
+     * @param offHeap  Whether the table is held outside the Java heap; see {@link LoadTable#isOffHeap()}.
+     * @return A load table holding the pickup and drop-off coordinates of each record, in file order.
+     * @throws IOException If an I/O error occurs while reading from the file.
+     */
+    public static LoadTable readFileTable(String filePath, boolean offHeap) throws IOException {
+        long start = SolverMetrics.start();
+        LoadTable table;
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            table = readTable(reader, offHeap);
+        }
+        SolverMetrics.stop(SolverMetrics.Phase.PARSE, start);
+        return table;
+    }
 
-                // Convert to double array and add to list
-                double pickupX = Double.parseDouble(pickupCoords[0]);
-                double pickupY = Double.parseDouble(pickupCoords[1]);
-                double dropoffX = Double.parseDouble(dropoffCoords[0]);
-                double dropoffY = Double.parseDouble(dropoffCoords[1]);
+    /**
+     * Reads an instance in the format described for {@link #readFile(String)} from a reader, up to its end, straight
+     * into the columns of a load table.
+     *
+     * @param reader  The reader to read from; it is not closed.
+     * @param offHeap Whether the table is held outside the Java heap.
+     * @return A load table holding the pickup and drop-off coordinates of each record, in file order.
+     * @throws IOException If an I/O error occurs while reading.
+     */
+    public static LoadTable readTable(BufferedReader reader, boolean offHeap) throws IOException {
+        LoadTable.Builder builder = new LoadTable.Builder(0, offHeap);
+        String line;
+        boolean isFirstLine = true; // to skip the header line
 
-                dataList.add(new double[][]{new double[]{pickupX, pickupY}, new double[]{dropoffX, dropoffY}});
+        // Parse the lines
+        while ((line = reader.readLine()) != null) {
+            if (isFirstLine) {
+                isFirstLine = false;
+                continue;
             }
-        }
+            String[] parts = line.split(" ");
 
+            // Parse the coordinates, removing parentheses and splitting by comma
+            String[] pickupCoords = parts[1].substring(1, parts[1].length() - 1).split(",");
+            String[] dropoffCoords = parts[2].substring(1, parts[2].length() - 1).split(",");
 
-        double[][][] dataArray = dataList.toArray(new double[dataList.size()][][]);
-        for (int i = 0; i < dataList.size(); i++) {
-            dataArray[i] = dataList.get(i);
+            builder.add(Double.parseDouble(pickupCoords[0]), Double.parseDouble(pickupCoords[1]),
+                    Double.parseDouble(dropoffCoords[0]), Double.parseDouble(dropoffCoords[1]));
         }
+        return builder.build();
+    }
 
-        return dataArray;
+    /**
+     * Reads the provided file in the same format as {@link #readFile(String)}, but memory-maps it and scans its bytes
+     * directly instead of going through Strings. The coordinates are written straight into the columns of a load table,
+     * so no per-line or per-number objects are created. The values are identical to those produced by {@link #readFile(String)}.
+     *
+     * @param filePath The path of the file to read.
+     * @return A load table holding the pickup and drop-off coordinates of each record, in file order.
+     * @throws IOException If an I/O error occurs, or if a record is malformed; the message then names its line and column.
+     */
+    public static LoadTable readFileMapped(String filePath) throws IOException {
+        return readFileMapped(filePath, false);
+    }
 
+    /**
+     * Reads the provided file like {@link #readFileMapped(String)}, with the table held on the heap or outside it.
+     * With off-heap storage the columns are filled in place, so the heap used while reading and solving stays the same
+     * however many loads the file has.
+     *
+     * @param filePath The path of the file to read.
+     * @param offHeap  Whether the table is held outside the Java heap; see {@link LoadTable#isOffHeap()}.
+     * @return A load table holding the pickup and drop-off coordinates of each record, in file order.
+     * @throws IOException If an I/O error occurs, or if a record is malformed; the message then names its line and column.
+     */
+    public static LoadTable readFileMapped(String filePath, boolean offHeap) throws IOException {
+        long start = SolverMetrics.start();
+        LoadTable table = new MappedLoadParser().parse(filePath, offHeap);
+        SolverMetrics.stop(SolverMetrics.Phase.PARSE, start);
+        return table;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,255 @@
+package service;
+
+import contants.Constants;
+import helpers.DistanceKernel;
+import helpers.GridCells;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index used by the {@link Dispatcher} to find the nearest driver that can take a load. Like
+ * {@link helpers.DriverSpatialIndex} it is a uniform grid over the location each driver currently ends at, with
+ * occupied cells numbered by {@link GridCells}. In addition every driver carries its working time, and the
+ * members of a cell are kept ordered by the working time left, most first.
+ * <p>
+ * A search visits the cells in rings of growing distance from the pick-up and stops once no unvisited cell can hold a
+ * driver nearer than the best found. Within a cell it stops at the first driver whose time left cannot cover even the
+ * nearest point of the cell, so drivers that are close but nearly out of time are not examined one by one. The work
+ * done per search therefore stays bounded by the neighbourhood of the pick-up rather than growing with the number of
+ * drivers.
+ * </p>
+ */
+class DispatchGrid {
+    // Slack on the pruning bounds, far larger than any rounding in the exact working time test
+    private static final double PRUNE_SLACK = 1e-6;
+
+    private final double cellSize;
+
+    // Per driver state, indexed by driver number; cellOf is -1 for drivers not in the grid
+    private double[] endX = new double[16];
+    private double[] endY = new double[16];
+    private double[] workingTime = new double[16];
+    private int[] cellOf = new int[16];
+    private int[] slotInCell = new int[16];
+
+    // Numbers the occupied cells; cell storage is indexed by cell number and members are ordered by descending time left
+    private final GridCells cells = new GridCells();
+    private int[][] cellMembers = new int[16][];
+    private double[][] cellTimeLeft = new double[16][];
+    private int[] cellCount = new int[16];
+
+    // Bounding box of every cell ever used, which limits how far the ring search walks
+    private int minCx = Integer.MAX_VALUE;
+    private int maxCx = Integer.MIN_VALUE;
+    private int minCy = Integer.MAX_VALUE;
+    private int maxCy = Integer.MIN_VALUE;
+
+    /**
+     * Constructs an empty grid.
+     *
+     * @param cellSize The edge length of a grid cell; must be positive.
+     * @throws IllegalArgumentException if the cell size is not positive.
+     */
+    DispatchGrid(double cellSize) {
+        if (!(cellSize > 0))
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        this.cellSize = cellSize;
+        Arrays.fill(this.cellOf, -1);
+    }
+
+    /**
+     * Inserts a driver, or moves it if it is already in the grid.
+     *
+     * @param driver      The driver number.
+     * @param x           The x coordinate of the driver's current end location.
+     * @param y           The y coordinate of the driver's current end location.
+     * @param workingTime The driver's working time.
+     */
+    void put(int driver, double x, double y, double workingTime) {
+        ensureDriverCapacity(driver + 1);
+        remove(driver);
+        this.endX[driver] = x;
+        this.endY[driver] = y;
+        this.workingTime[driver] = workingTime;
+        insert(driver, findOrCreateCell(cellCoordinate(x), cellCoordinate(y)), Constants.MAX_WORKING_TIME - workingTime);
+    }
+
+    /**
+     * Removes a driver from the grid. Removing a driver that is not in the grid has no effect.
+     *
+     * @param driver The driver number.
+     */
+    void remove(int driver) {
+        if (driver >= this.cellOf.length || this.cellOf[driver] < 0)
+            return;
+        int cell = this.cellOf[driver];
+        int[] members = this.cellMembers[cell];
+        double[] timeLeft = this.cellTimeLeft[cell];
+        int count = --this.cellCount[cell];
+        for (int slot = this.slotInCell[driver]; slot < count; slot++) {
+            members[slot] = members[slot + 1];
+            timeLeft[slot] = timeLeft[slot + 1];
+            this.slotInCell[members[slot]] = slot;
+        }
+        this.cellOf[driver] = -1;
+    }
+
+    /**
+     * Retrieves the x coordinate last stored for a driver.
+     *
+     * @param driver The driver number.
+     * @return The x coordinate of the driver's end location.
+     */
+    double endX(int driver) {
+        return this.endX[driver];
+    }
+
+    /**
+     * Retrieves the y coordinate last stored for a driver.
+     *
+     * @param driver The driver number.
+     * @return The y coordinate of the driver's end location.
+     */
+    double endY(int driver) {
+        return this.endY[driver];
+    }
+
+    /**
+     * Finds the driver nearest to a pick-up that passes the solver's checks for an existing driver: its end location
+     * is closer to the pick-up than the cost of a driver plus the distance from the depot, and its working time plus
+     * the way to the pick-up, the load itself and the way back to the depot stays below the maximum working time.
+     * Among equally near drivers the lowest driver number wins.
+     *
+     * @param x             The x coordinate of the pick-up.
+     * @param y             The y coordinate of the pick-up.
+     * @param depotToPickup The distance from the depot to the pick-up.
+     * @param pickupToDrop  The distance from the pick-up to the drop-off.
+     * @param dropToDepot   The distance from the drop-off back to the depot.
+     * @return The driver number, or -1 if no driver qualifies.
+     */
+    int nearest(double x, double y, double depotToPickup, double pickupToDrop, double dropToDepot) {
+        double need = pickupToDrop + dropToDepot;
+        double costLimit = Constants.COST_OF_DRIVER + depotToPickup;
+        // A driver with the full working time left still has to reach the pick-up within this distance
+        double maxDistance = Math.min(costLimit, Constants.MAX_WORKING_TIME - need);
+        if (!(maxDistance >= 0) || this.cells.size() == 0)
+            return -1;
+        int cx = cellCoordinate(x);
+        int cy = cellCoordinate(y);
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        int maxRing = Math.max(Math.max(cx - this.minCx, this.maxCx - cx), Math.max(cy - this.minCy, this.maxCy - cy));
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every cell of this ring and beyond is at least this far from the pick-up
+            double ringDistance = (ring - 1) * this.cellSize;
+            if (ringDistance > bestDistance || ringDistance > maxDistance + PRUNE_SLACK)
+                break;
+            int fromX = Math.max(cx - ring, this.minCx);
+            int toX = Math.min(cx + ring, this.maxCx);
+            int fromY = Math.max(cy - ring, this.minCy);
+            int toY = Math.min(cy + ring, this.maxCy);
+            for (int gx = fromX; gx <= toX; gx++) {
+                boolean edgeColumn = gx == cx - ring || gx == cx + ring;
+                for (int gy = fromY; gy <= toY; gy++) {
+                    // Inner columns only contribute their top and bottom cell to the ring
+                    if (!edgeColumn && gy != cy - ring && gy != cy + ring) {
+                        if (gy < cy + ring)
+                            gy = cy + ring - 1;
+                        continue;
+                    }
+                    int cell = this.cells.find(gx, gy);
+                    if (cell < 0 || this.cellCount[cell] == 0)
+                        continue;
+                    double cellDistance = distanceToCell(x, y, gx, gy);
+                    if (cellDistance > bestDistance || cellDistance > maxDistance + PRUNE_SLACK)
+                        continue;
+                    int[] members = this.cellMembers[cell];
+                    double[] timeLeft = this.cellTimeLeft[cell];
+                    for (int m = 0; m < this.cellCount[cell]; m++) {
+                        // The rest of the cell has even less time left than needed to reach its nearest point
+                        if (timeLeft[m] + PRUNE_SLACK < need + cellDistance)
+                            break;
+                        int driver = members[m];
+                        double distance = DistanceKernel.distance(this.endX[driver], this.endY[driver], x, y);
+                        if (distance < costLimit
+                                && this.workingTime[driver] + (distance + pickupToDrop) + dropToDepot < Constants.MAX_WORKING_TIME
+                                && (distance < bestDistance || distance == bestDistance && driver < best)) {
+                            best = driver;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private double distanceToCell(double x, double y, int gx, int gy) {
+        double left = gx * this.cellSize;
+        double bottom = gy * this.cellSize;
+        double dx = Math.max(0, Math.max(left - x, x - (left + this.cellSize)));
+        double dy = Math.max(0, Math.max(bottom - y, y - (bottom + this.cellSize)));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private void insert(int driver, int cell, double timeLeft) {
+        int count = this.cellCount[cell];
+        if (this.cellMembers[cell] == null) {
+            this.cellMembers[cell] = new int[4];
+            this.cellTimeLeft[cell] = new double[4];
+        } else if (count == this.cellMembers[cell].length) {
+            this.cellMembers[cell] = Arrays.copyOf(this.cellMembers[cell], count * 2);
+            this.cellTimeLeft[cell] = Arrays.copyOf(this.cellTimeLeft[cell], count * 2);
+        }
+        int[] members = this.cellMembers[cell];
+        double[] times = this.cellTimeLeft[cell];
+        int slot = count;
+        while (slot > 0 && times[slot - 1] < timeLeft) {
+            members[slot] = members[slot - 1];
+            times[slot] = times[slot - 1];
+            this.slotInCell[members[slot]] = slot;
+            slot--;
+        }
+        members[slot] = driver;
+        times[slot] = timeLeft;
+        this.slotInCell[driver] = slot;
+        this.cellOf[driver] = cell;
+        this.cellCount[cell] = count + 1;
+    }
+
+    private int cellCoordinate(double value) {
+        return (int) Math.floor(value / this.cellSize);
+    }
+
+    private void ensureDriverCapacity(int slots) {
+        if (slots > this.endX.length) {
+            int capacity = Math.max(slots, this.endX.length * 2);
+            this.endX = Arrays.copyOf(this.endX, capacity);
+            this.endY = Arrays.copyOf(this.endY, capacity);
+            this.workingTime = Arrays.copyOf(this.workingTime, capacity);
+            this.slotInCell = Arrays.copyOf(this.slotInCell, capacity);
+            int oldLength = this.cellOf.length;
+            this.cellOf = Arrays.copyOf(this.cellOf, capacity);
+            Arrays.fill(this.cellOf, oldLength, capacity, -1);
+        }
+    }
+
+    private int findOrCreateCell(int cx, int cy) {
+        int cellsBefore = this.cells.size();
+        int cell = this.cells.findOrAdd(cx, cy);
+        if (this.cells.size() == cellsBefore)
+            return cell;
+        if (cell == this.cellCount.length) {
+            int capacity = this.cellCount.length * 2;
+            this.cellMembers = Arrays.copyOf(this.cellMembers, capacity);
+            this.cellTimeLeft = Arrays.copyOf(this.cellTimeLeft, capacity);
+            this.cellCount = Arrays.copyOf(this.cellCount, capacity);
+        }
+        this.minCx = Math.min(this.minCx, cx);
+        this.maxCx = Math.max(this.maxCx, cx);
+        this.minCy = Math.min(this.minCy, cy);
+        this.maxCy = Math.max(this.maxCy, cy);
+        return cell;
+    }
+}
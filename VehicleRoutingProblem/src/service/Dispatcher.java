@@ -0,0 +1,277 @@
+package service;
+
+import contants.Constants;
+import helpers.DistanceKernel;
+import objects.Driver;
+import objects.Load;
+import objects.LoadTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Assigns loads to drivers one at a time as they arrive, keeping the plan built so far instead of re-solving.
+ * Each load goes to the nearest existing driver that passes the same checks as
+ * {@link Solution#checkIfExistingDriverFits(List, Load)}: the driver's last drop-off is closer to the pick-up than the
+ * cost of a new driver plus the distance from the depot, and the driver can carry the load and still get back to the
+ * depot within the maximum working time. Otherwise a new driver is started.
+ * <p>
+ * The nearest driver is found with a ring search over a grid of the drivers' end locations that also prunes on the
+ * working time drivers have left; see {@link DispatchGrid}. The work done per load therefore depends on the drivers
+ * around its pick-up, not on how many drivers there are. Drivers that can no longer get back to the depot in time
+ * leave the index for good.
+ * </p>
+ * <p>
+ * All loads of a dispatcher come from one {@link LoadTable}, like the loads of a {@link Driver}. Loads that are already
+ * rows of a table are passed to {@link #addLoad(Load)}; loads that arrive as bare coordinates are passed to
+ * {@link #addLoad(double, double, double, double)}, which appends them to a table owned by the dispatcher and numbers
+ * them in order of arrival. The two cannot be mixed in one dispatcher.
+ * </p>
+ * <p>
+ * Routes are stored in append-only arrays that are never overwritten once written, so {@link #snapshot()} only
+ * captures the current route lengths and array references and never copies a route. A dispatcher is not thread-safe;
+ * its snapshots are immutable and may be handed to other threads.
+ * </p>
+ * <p>
+ * Usage example:
+ * <pre>
+ *     Dispatcher dispatcher = new Dispatcher();
+ *     int driver = dispatcher.addLoad(pickupX, pickupY, dropX, dropY);
+ *     Dispatcher.Snapshot plan = dispatcher.snapshot();
+ * </pre>
+ * </p>
+ */
+public class Dispatcher {
+    /**
+     * Default cell edge length of the driver index.
+     */
+    public static final double DEFAULT_CELL_SIZE = 25.0;
+
+    private final DispatchGrid driverIndex;
+
+    // The table every load comes from, known once the first load arrives; when the dispatcher owns the table it
+    // collects the loads in arrivals and table is only built over them for a snapshot
+    private LoadTable table;
+    private LoadTable.Builder arrivals;
+    private int loadCount;
+
+    // Per driver state, indexed by driver number; a route holds load indices
+    private int[][] routes = new int[16][];
+    private int[] routeLength = new int[16];
+    private double[] workingTime = new double[16];
+    private int driverCount;
+
+    /**
+     * Constructs an empty dispatcher using {@link #DEFAULT_CELL_SIZE}.
+     */
+    public Dispatcher() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructs an empty dispatcher.
+     *
+     * @param cellSize The cell edge length of the driver index; must be positive.
+     * @throws IllegalArgumentException if the cell size is not positive.
+     */
+    public Dispatcher(double cellSize) {
+        this.driverIndex = new DispatchGrid(cellSize);
+    }
+
+    /**
+     * Assigns a newly arrived load to a driver. The load keeps its load number.
+     *
+     * @param load The load, from the same table as every load added before it.
+     * @return The number of the driver the load was given to, counting drivers from 0 in the order they were started.
+     * @throws IllegalArgumentException if the load comes from another table than the loads added before it, or the
+     *                                  dispatcher numbers the loads itself.
+     */
+    public int addLoad(Load load) {
+        if (arrivals != null)
+            throw new IllegalArgumentException("Loads of this dispatcher are given as coordinates, not as Load objects");
+        if (table == null)
+            table = load.getTable();
+        else if (load.getTable() != table)
+            throw new IllegalArgumentException("Load " + load.getLoadNumber() + " comes from another load table than the loads before it");
+        int index = load.getIndex();
+        return assign(index, table.pickupX(index), table.pickupY(index), table.dropX(index), table.dropY(index),
+                table.depotToPickup(index), table.pickupToDrop(index), table.dropToDepot(index));
+    }
+
+    /**
+     * Assigns a newly arrived load, given by its locations, to a driver. The load is appended to a table owned by the
+     * dispatcher; its load number is the number of loads added before it plus one.
+     *
+     * @param pickupX The x coordinate of the pickup location.
+     * @param pickupY The y coordinate of the pickup location.
+     * @param dropX   The x coordinate of the drop-off location.
+     * @param dropY   The y coordinate of the drop-off location.
+     * @return The number of the driver the load was given to, counting drivers from 0 in the order they were started.
+     * @throws IllegalArgumentException if loads were added to this dispatcher as Load objects.
+     */
+    public int addLoad(double pickupX, double pickupY, double dropX, double dropY) {
+        if (table != null && arrivals == null)
+            throw new IllegalArgumentException("Loads of this dispatcher are given as Load objects, not as coordinates");
+        if (arrivals == null)
+            arrivals = new LoadTable.Builder(64, false);
+        arrivals.add(pickupX, pickupY, dropX, dropY);
+        double depotX = Constants.DEPOT_LOCATION[0];
+        double depotY = Constants.DEPOT_LOCATION[1];
+        return assign(arrivals.size() - 1, pickupX, pickupY, dropX, dropY,
+                DistanceKernel.distance(depotX, depotY, pickupX, pickupY),
+                DistanceKernel.distance(pickupX, pickupY, dropX, dropY),
+                DistanceKernel.distance(dropX, dropY, depotX, depotY));
+    }
+
+    private int assign(int index, double pickupX, double pickupY, double dropOffX, double dropOffY,
+                       double depotToPickup, double pickupToDrop, double dropToDepot) {
+        loadCount++;
+        int driver = driverIndex.nearest(pickupX, pickupY, depotToPickup, pickupToDrop, dropToDepot);
+        if (driver < 0) {
+            driver = startDriver();
+            workingTime[driver] = depotToPickup + pickupToDrop;
+        } else {
+            double lastDropOffToPickup = DistanceKernel.distance(driverIndex.endX(driver), driverIndex.endY(driver), pickupX, pickupY);
+            workingTime[driver] += lastDropOffToPickup + pickupToDrop;
+        }
+        appendToRoute(driver, index);
+
+        // The tolerance keeps rounding from removing a driver that could still qualify, as in the solver
+        if (workingTime[driver] + dropToDepot > Constants.MAX_WORKING_TIME + 1e-6) {
+            driverIndex.remove(driver);
+        } else {
+            driverIndex.put(driver, dropOffX, dropOffY, workingTime[driver]);
+        }
+        return driver;
+    }
+
+    private int startDriver() {
+        if (driverCount == routes.length) {
+            routes = Arrays.copyOf(routes, driverCount * 2);
+            routeLength = Arrays.copyOf(routeLength, driverCount * 2);
+            workingTime = Arrays.copyOf(workingTime, driverCount * 2);
+        }
+        routes[driverCount] = new int[4];
+        return driverCount++;
+    }
+
+    private void appendToRoute(int driver, int index) {
+        int length = routeLength[driver];
+        // Growing replaces the array instead of writing into it, so snapshots holding the old one are unaffected
+        if (length == routes[driver].length)
+            routes[driver] = Arrays.copyOf(routes[driver], length * 2);
+        routes[driver][length] = index;
+        routeLength[driver] = length + 1;
+    }
+
+    /**
+     * Retrieves the number of loads assigned so far.
+     *
+     * @return The number of loads.
+     */
+    public int getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * Retrieves the number of drivers started so far.
+     *
+     * @return The number of drivers.
+     */
+    public int getDriverCount() {
+        return driverCount;
+    }
+
+    /**
+     * Captures the current plan. Later assignments do not change the snapshot. The cost is proportional to the number
+     * of drivers, not to the number of loads.
+     *
+     * @return The plan as it stands.
+     */
+    public Snapshot snapshot() {
+        // Building shares the columns, and the loads added later are outside the table built now
+        if (arrivals != null)
+            table = arrivals.build();
+        return new Snapshot(table, Arrays.copyOf(routes, driverCount), Arrays.copyOf(routeLength, driverCount),
+                Arrays.copyOf(workingTime, driverCount), loadCount);
+    }
+
+    /**
+     * An immutable view of a dispatcher's plan at one point in time.
+     */
+    public static final class Snapshot {
+        // Null while no load has arrived
+        private final LoadTable table;
+        private final int[][] routes;
+        private final int[] routeLength;
+        private final double[] workingTime;
+        private final int loadCount;
+
+        private Snapshot(LoadTable table, int[][] routes, int[] routeLength, double[] workingTime, int loadCount) {
+            this.table = table;
+            this.routes = routes;
+            this.routeLength = routeLength;
+            this.workingTime = workingTime;
+            this.loadCount = loadCount;
+        }
+
+        /**
+         * Retrieves the number of loads in the plan.
+         *
+         * @return The number of loads.
+         */
+        public int getLoadCount() {
+            return loadCount;
+        }
+
+        /**
+         * Retrieves the number of drivers in the plan.
+         *
+         * @return The number of drivers.
+         */
+        public int getDriverCount() {
+            return routes.length;
+        }
+
+        /**
+         * Retrieves the loads of one driver, in the order the driver carries them.
+         *
+         * @param driver The driver number.
+         * @return An unmodifiable list of the driver's loads.
+         */
+        public List<Load> getRoute(int driver) {
+            Load[] route = new Load[routeLength[driver]];
+            for (int i = 0; i < route.length; i++)
+                route[i] = table.toLoad(routes[driver][i]);
+            return Collections.unmodifiableList(Arrays.asList(route));
+        }
+
+        /**
+         * Retrieves the working time of one driver, which like in the solver excludes the way back to the depot.
+         *
+         * @param driver The driver number.
+         * @return The working time.
+         */
+        public double getWorkingTime(int driver) {
+            return workingTime[driver];
+        }
+
+        /**
+         * Builds drivers carrying the plan, in the form the solver returns, e.g. for printing the result.
+         *
+         * @return A new list of new drivers.
+         */
+        public List<Driver> toDrivers() {
+            List<Driver> drivers = new ArrayList<>(routes.length);
+            for (int d = 0; d < routes.length; d++) {
+                Driver driver = new Driver();
+                for (int i = 0; i < routeLength[d]; i++)
+                    driver.addLoad(table.toLoad(routes[d][i]));
+                drivers.add(driver);
+            }
+            return drivers;
+        }
+    }
+}
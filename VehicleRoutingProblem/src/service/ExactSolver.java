@@ -0,0 +1,544 @@
+package service;
+
+import contants.Constants;
+import objects.Driver;
+import objects.LoadTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Finds the cheapest assignment of a small instance, of at most {@link #MAX_LOADS} loads, by branch-and-bound, and
+ * proves it optimal.
+ * <p>
+ * The search builds the routes one after another, load by load: at every node it either appends an unassigned load to
+ * the open route, as long as the route including the drive back stays within the maximum working time, or closes the
+ * route and opens the next one. Routes are built in order of their lowest load index, so every partition into routes
+ * is visited once: a route may only be closed once it holds the lowest load index that was unassigned when it was
+ * opened. The unassigned loads are a 64-bit mask.
+ * </p>
+ * <p>
+ * A node is pruned when its lower bound is no better than the best assignment found so far. The bound adds to the cost
+ * so far:
+ * <ul>
+ *     <li>the fixed pick-up to drop-off distance of every unassigned load,</li>
+ *     <li>the cheapest arc still available into every unassigned pick-up, from the depot, the open route's last
+ *     drop-off or another unassigned drop-off, plus the cheapest drives back to the depot of the routes still to be
+ *     closed, or, when larger, the cheapest arc still available out of every drop-off not yet followed plus the
+ *     cheapest drives from the depot starting the routes still to be opened,</li>
+ *     <li>the cost of a driver for every route still to be opened, at least as many as the work left, measured as
+ *     above, needs beyond the time left on the open route when every route takes at most the maximum working time.</li>
+ * </ul>
+ * Loads that exceed the maximum working time even on a route of their own cannot share a route, so they are given
+ * a driver each up front, as the greedy construction does, and left out of the search.
+ * </p>
+ * <p>
+ * The first levels of the tree are split into tasks on a work-stealing {@link ForkJoinPool}; below them each task
+ * searches depth first, trying the nearest loads first. All tasks share the incumbent, which starts as the cheaper of
+ * the greedy and savings constructions improved by the {@link LocalSearch}. When the time limit passes the search
+ * stops; the lowest bound of the nodes left unexplored then bounds the optimum from below, and the gap to the
+ * incumbent is reported.
+ * </p>
+ * <p>
+ * Usage example:
+ * <pre>
+ *     ExactSolver.Result result = new ExactSolver(10_000, 8).solveExact(solution);
+ *     if (!result.isOptimal())
+ *         System.err.println("Gap " + result.getGap());
+ * </pre>
+ * </p>
+ */
+public class ExactSolver implements SolverStrategy {
+    private static final Logger LOGGER = Logger.getLogger(ExactSolver.class.getName());
+
+    /**
+     * The largest number of loads the search handles; the unassigned loads are held in a {@code long}.
+     */
+    public static final int MAX_LOADS = Long.SIZE;
+    public static final long DEFAULT_TIME_LIMIT_MILLIS = 10_000;
+
+    // Nodes with fewer loads assigned than this are split into tasks, deeper nodes are searched within their task
+    private static final int SPLIT_DEPTH = 2;
+    private static final int DEADLINE_CHECK_INTERVAL = 4096;
+    // A node must be better than the incumbent by more than this to be searched, so rounding cannot stall the proof
+    private static final double EPSILON = 1e-9;
+    private static final long SEED_IMPROVE_MILLIS = 200;
+
+    private final long timeLimitMillis;
+    private final int parallelism;
+
+    /**
+     * Constructs a solver with a time limit of {@link #DEFAULT_TIME_LIMIT_MILLIS}, using every available processor.
+     */
+    public ExactSolver() {
+        this(DEFAULT_TIME_LIMIT_MILLIS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a solver.
+     *
+     * @param timeLimitMillis The time the search may take, in milliseconds.
+     * @param parallelism     The number of threads searching.
+     * @throws IllegalArgumentException if the time limit is negative or parallelism is not positive.
+     */
+    public ExactSolver(long timeLimitMillis, int parallelism) {
+        if (timeLimitMillis < 0)
+            throw new IllegalArgumentException("Time limit must not be negative: " + timeLimitMillis);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        this.timeLimitMillis = timeLimitMillis;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Solves the instance and logs whether the result is proven optimal or, if the time limit was reached, its gap.
+     *
+     * @param solution The problem instance.
+     * @return The drivers of the best assignment found.
+     * @throws IllegalArgumentException if the instance has more than {@link #MAX_LOADS} loads.
+     */
+    @Override
+    public List<Driver> solve(Solution solution) {
+        Result result = solveExact(solution);
+        if (result.isOptimal()) {
+            LOGGER.log(Level.INFO, String.format("Proven optimal: cost %.6f, %d nodes", result.getCost(), result.getNodes()));
+        } else {
+            LOGGER.log(Level.WARNING, String.format("Time limit reached: cost %.6f, lower bound %.6f, gap %.4f%%, %d nodes",
+                    result.getCost(), result.getLowerBound(), result.getGap() * 100, result.getNodes()));
+        }
+        return result.getDrivers();
+    }
+
+    /**
+     * Solves the instance.
+     *
+     * @param solution The problem instance.
+     * @return The best assignment found, with its lower bound.
+     * @throws IllegalArgumentException if the instance has more than {@link #MAX_LOADS} loads.
+     */
+    public Result solveExact(Solution solution) {
+        if (solution.getLoadCount() > MAX_LOADS)
+            throw new IllegalArgumentException("The exact solver handles at most " + MAX_LOADS + " loads, the instance has "
+                    + solution.getLoadCount());
+        long start = SolverMetrics.start();
+        Result result = new Search(solution).run();
+        SolverMetrics.stop(SolverMetrics.Phase.CONSTRUCTION, start);
+        return result;
+    }
+
+    /**
+     * The outcome of an exact search.
+     */
+    public static final class Result {
+        private final List<Driver> drivers;
+        private final double cost;
+        private final double lowerBound;
+        private final boolean optimal;
+        private final long nodes;
+        private final long elapsedNanos;
+
+        private Result(List<Driver> drivers, double cost, double lowerBound, boolean optimal, long nodes, long elapsedNanos) {
+            this.drivers = drivers;
+            this.cost = cost;
+            this.lowerBound = lowerBound;
+            this.optimal = optimal;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Retrieves the drivers of the best assignment found.
+         *
+         * @return The drivers with their assigned loads.
+         */
+        public List<Driver> getDrivers() {
+            return drivers;
+        }
+
+        /**
+         * Retrieves the total cost of the best assignment found.
+         *
+         * @return The cost.
+         */
+        public double getCost() {
+            return cost;
+        }
+
+        /**
+         * Retrieves the proven lower bound on the cost of any assignment.
+         *
+         * @return The lower bound; equal to the cost when the result is optimal.
+         */
+        public double getLowerBound() {
+            return lowerBound;
+        }
+
+        /**
+         * Retrieves whether the search finished, proving the assignment optimal.
+         *
+         * @return true if no cheaper assignment exists.
+         */
+        public boolean isOptimal() {
+            return optimal;
+        }
+
+        /**
+         * Retrieves the optimality gap: how much more the assignment may cost than the optimum, relative to its cost.
+         *
+         * @return The gap between 0 and 1, 0 when the result is optimal.
+         */
+        public double getGap() {
+            return optimal || cost == 0 ? 0 : Math.max(0, (cost - lowerBound) / cost);
+        }
+
+        /**
+         * Retrieves the number of search nodes visited.
+         *
+         * @return The number of nodes.
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Retrieves the time the search took, including the seeding of the incumbent.
+         *
+         * @return The elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    /**
+     * The state of one search: the distances between the searched loads and the shared incumbent.
+     */
+    private final class Search {
+        private final Solution solution;
+        private final LoadTable table;
+        private final long startNanos;
+        private final long deadlineNanos;
+        // Searched loads are numbered 0..n-1; ids maps them to table indices
+        private final int n;
+        private final int[] ids;
+        private final double[][] arc;
+        private final double[] depotToPickup;
+        private final double[] pickupToDrop;
+        private final double[] dropToDepot;
+        // For every load, the other loads ordered by the arc into its pick-up, and out of its drop-off
+        private final int[][] predecessorOrder;
+        private final int[][] successorOrder;
+        private final int[] depotOrder;
+        // Loads on routes of their own, and what those routes cost
+        private final List<Driver> fixedDrivers = new ArrayList<>();
+        private double fixedCost;
+
+        private final AtomicLong nodes = new AtomicLong();
+        private volatile boolean stopped;
+        private volatile double incumbentCost;
+        private List<Driver> incumbentDrivers;
+        private int[] incumbentSequence;
+        private long incumbentRouteStarts;
+        private double openBound = Double.POSITIVE_INFINITY;
+
+        private Search(Solution solution) {
+            this.solution = solution;
+            this.table = solution.getTable();
+            this.startNanos = System.nanoTime();
+            this.deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis);
+
+            int[] searched = new int[solution.getLoadCount()];
+            int count = 0;
+            for (int i : solution.loadIndices()) {
+                double alone = table.depotToPickup(i) + table.pickupToDrop(i) + table.dropToDepot(i);
+                if (alone < Constants.MAX_WORKING_TIME) {
+                    searched[count++] = i;
+                } else {
+                    Driver driver = new Driver();
+                    driver.addLoad(table.toLoad(i));
+                    fixedDrivers.add(driver);
+                    fixedCost += driver.getCost();
+                }
+            }
+            this.n = count;
+            this.ids = Arrays.copyOf(searched, count);
+            this.arc = new double[n][n];
+            this.depotToPickup = new double[n];
+            this.pickupToDrop = new double[n];
+            this.dropToDepot = new double[n];
+            for (int a = 0; a < n; a++) {
+                depotToPickup[a] = table.depotToPickup(ids[a]);
+                pickupToDrop[a] = table.pickupToDrop(ids[a]);
+                dropToDepot[a] = table.dropToDepot(ids[a]);
+                for (int b = 0; b < n; b++)
+                    arc[a][b] = a == b ? 0 : table.dropToPickup(ids[a], ids[b]);
+            }
+            this.predecessorOrder = new int[n][];
+            this.successorOrder = new int[n][];
+            for (int a = 0; a < n; a++) {
+                int load = a;
+                predecessorOrder[a] = othersSortedBy(load, other -> arc[other][load]);
+                successorOrder[a] = othersSortedBy(load, other -> arc[load][other]);
+            }
+            this.depotOrder = othersSortedBy(-1, other -> depotToPickup[other]);
+        }
+
+        private int[] othersSortedBy(int exclude, java.util.function.IntToDoubleFunction key) {
+            double[] keys = new double[exclude < 0 ? n : n - 1];
+            int[] loads = new int[keys.length];
+            int count = 0;
+            for (int other = 0; other < n; other++) {
+                if (other != exclude)
+                    loads[count++] = other;
+            }
+            for (int k = 0; k < loads.length; k++)
+                keys[k] = key.applyAsDouble(loads[k]);
+            int[] order = LoadOrdering.sort(keys);
+            for (int k = 0; k < order.length; k++)
+                order[k] = loads[order[k]];
+            return order;
+        }
+
+        private Result run() {
+            seedIncumbent();
+            if (n > 0) {
+                int[] sequence = new int[n];
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(new NodeTask(allLoads(), -1, 0, fixedCost, -1, 0, sequence, 0L));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            boolean optimal = !stopped;
+            double lowerBound = optimal ? incumbentCost : Math.min(openBound, incumbentCost);
+            return new Result(incumbentDrivers(), incumbentCost, lowerBound, optimal, nodes.get(), System.nanoTime() - startNanos);
+        }
+
+        private long allLoads() {
+            return n == Long.SIZE ? -1L : (1L << n) - 1;
+        }
+
+        /**
+         * Starts the incumbent as the cheaper of the greedy and savings constructions, improved by the local search.
+         */
+        private void seedIncumbent() {
+            List<Driver> greedy = solution.fork().solve();
+            List<Driver> savings = new ClarkeWrightSolver(ClarkeWrightSolver.DEFAULT_NEIGHBOURS, parallelism).solve(solution);
+            List<Driver> seed = solution.getTotalCost(savings) < solution.getTotalCost(greedy) ? savings : greedy;
+            long improveMillis = Math.min(SEED_IMPROVE_MILLIS, timeLimitMillis / 10);
+            List<Driver> improved = solution.improve(seed, improveMillis, Long.MAX_VALUE);
+            if (solution.getTotalCost(improved) < solution.getTotalCost(seed) && withinLimit(improved))
+                seed = improved;
+            incumbentDrivers = seed;
+            incumbentCost = solution.getTotalCost(seed);
+        }
+
+        // The local search keeps routes that were already too long, so an improved result is checked before use
+        private boolean withinLimit(List<Driver> drivers) {
+            for (Driver driver : drivers) {
+                if (driver.getLoadCount() > 1 && !(driver.getRouteDistance() < Constants.MAX_WORKING_TIME))
+                    return false;
+            }
+            return true;
+        }
+
+        private List<Driver> incumbentDrivers() {
+            if (incumbentSequence == null)
+                return incumbentDrivers;
+            List<Driver> drivers = new ArrayList<>();
+            Driver driver = null;
+            for (int position = 0; position < incumbentSequence.length; position++) {
+                if ((incumbentRouteStarts >>> position & 1) != 0) {
+                    driver = new Driver();
+                    drivers.add(driver);
+                }
+                driver.addLoad(table.toLoad(ids[incumbentSequence[position]]));
+            }
+            drivers.addAll(fixedDrivers);
+            return drivers;
+        }
+
+        private synchronized void offer(double cost, int[] sequence, long routeStarts) {
+            if (cost < incumbentCost - EPSILON) {
+                incumbentCost = cost;
+                incumbentSequence = sequence.clone();
+                incumbentRouteStarts = routeStarts;
+            }
+        }
+
+        private synchronized void recordOpen(double bound) {
+            openBound = Math.min(openBound, bound);
+        }
+
+        /**
+         * Searches the subtree below a node. Below {@link #SPLIT_DEPTH} the children are searched right away, nearest
+         * load first; above it they are collected into {@code forks} to run as tasks.
+         *
+         * @param unassigned  The mask of loads not yet on a route.
+         * @param last        The last load of the open route, or -1 if no route is open.
+         * @param duration    The working time of the open route so far, not counting the drive back.
+         * @param cost        The cost of the closed routes and of the open route so far, its driver included.
+         * @param mustInclude The load the open route must take before it may close, or -1.
+         * @param depth       The number of loads on routes.
+         * @param sequence    The loads on routes in the order they were assigned, valid up to depth.
+         * @param routeStarts The positions in the sequence at which a route starts, as a bit mask.
+         * @param forks       Where children are collected as tasks, or null to search them.
+         */
+        private void search(long unassigned, int last, double duration, double cost, int mustInclude, int depth,
+                            int[] sequence, long routeStarts, List<NodeTask> forks) {
+            if (unassigned == 0) {
+                offer(cost + dropToDepot[last], sequence, routeStarts);
+                return;
+            }
+            double bound = lowerBound(unassigned, last, duration, cost);
+            if (bound >= incumbentCost - EPSILON)
+                return;
+            if (stopped) {
+                recordOpen(bound);
+                return;
+            }
+            if (nodes.incrementAndGet() % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadlineNanos >= 0)
+                stopped = true;
+
+            if (last < 0) {
+                int lowest = Long.numberOfTrailingZeros(unassigned);
+                for (int next : depotOrder) {
+                    if ((unassigned >>> next & 1) == 0)
+                        continue;
+                    if (checkStop(bound))
+                        return;
+                    sequence[depth] = next;
+                    child(unassigned & ~(1L << next), next, depotToPickup[next] + pickupToDrop[next],
+                            cost + Constants.COST_OF_DRIVER + depotToPickup[next] + pickupToDrop[next],
+                            next == lowest ? -1 : lowest, depth + 1, sequence, routeStarts | 1L << depth, forks);
+                }
+                return;
+            }
+            for (int next : successorOrder[last]) {
+                if ((unassigned >>> next & 1) == 0)
+                    continue;
+                double extended = duration + arc[last][next] + pickupToDrop[next];
+                if (!(extended + dropToDepot[next] < Constants.MAX_WORKING_TIME))
+                    continue;
+                if (checkStop(bound))
+                    return;
+                sequence[depth] = next;
+                child(unassigned & ~(1L << next), next, extended, cost + arc[last][next] + pickupToDrop[next],
+                        next == mustInclude ? -1 : mustInclude, depth + 1, sequence, routeStarts, forks);
+            }
+            if (mustInclude < 0 && !checkStop(bound))
+                child(unassigned, -1, 0, cost + dropToDepot[last], -1, depth, sequence, routeStarts, forks);
+        }
+
+        private void child(long unassigned, int last, double duration, double cost, int mustInclude, int depth,
+                           int[] sequence, long routeStarts, List<NodeTask> forks) {
+            if (forks == null) {
+                search(unassigned, last, duration, cost, mustInclude, depth, sequence, routeStarts, null);
+            } else {
+                forks.add(new NodeTask(unassigned, last, duration, cost, mustInclude, depth, sequence.clone(), routeStarts));
+            }
+        }
+
+        // A node left with children unexplored when the search stops records its bound
+        private boolean checkStop(double bound) {
+            if (stopped)
+                recordOpen(bound);
+            return stopped;
+        }
+
+        private double lowerBound(long unassigned, int last, double duration, double cost) {
+            boolean open = last >= 0;
+            double fixed = 0;
+            double arcsIn = 0;
+            double arcsOut = open ? arcOut(last, unassigned) : 0;
+            double cheapestReturn = open ? dropToDepot[last] : Double.POSITIVE_INFINITY;
+            double cheapestStart = Double.POSITIVE_INFINITY;
+            for (long mask = unassigned; mask != 0; mask &= mask - 1) {
+                int load = Long.numberOfTrailingZeros(mask);
+                fixed += pickupToDrop[load];
+                arcsIn += arcIn(load, unassigned, last);
+                arcsOut += arcOut(load, unassigned);
+                cheapestReturn = Math.min(cheapestReturn, dropToDepot[load]);
+                cheapestStart = Math.min(cheapestStart, depotToPickup[load]);
+            }
+            // Every route takes at most the maximum working time; the open route has what it has not used left
+            double capacity = open ? Constants.MAX_WORKING_TIME - duration : 0;
+            double newRoutes = Math.max(open ? 0 : 1,
+                    Math.ceil((fixed + arcsIn - capacity) / Constants.MAX_WORKING_TIME - EPSILON));
+            double viaIn = arcsIn + ((open ? 1 : 0) + newRoutes) * cheapestReturn;
+            double viaOut = arcsOut + newRoutes * cheapestStart;
+            return cost + fixed + Math.max(viaIn, viaOut) + newRoutes * Constants.COST_OF_DRIVER;
+        }
+
+        // The cheapest arc into a load's pick-up that is still possible: from the depot, the open route's end or another unassigned load
+        private double arcIn(int load, long unassigned, int last) {
+            double best = depotToPickup[load];
+            for (int from : predecessorOrder[load]) {
+                if (arc[from][load] >= best)
+                    break;
+                if (from == last || (unassigned >>> from & 1) != 0)
+                    return arc[from][load];
+            }
+            return best;
+        }
+
+        // The cheapest arc out of a load's drop-off that is still possible: to the depot or an unassigned load
+        private double arcOut(int load, long unassigned) {
+            double best = dropToDepot[load];
+            for (int to : successorOrder[load]) {
+                if (arc[load][to] >= best)
+                    break;
+                if ((unassigned >>> to & 1) != 0)
+                    return arc[load][to];
+            }
+            return best;
+        }
+
+        /**
+         * One node of the search tree run as a task.
+         */
+        private final class NodeTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final long unassigned;
+            private final int last;
+            private final double duration;
+            private final double cost;
+            private final int mustInclude;
+            private final int depth;
+            private final int[] sequence;
+            private final long routeStarts;
+
+            private NodeTask(long unassigned, int last, double duration, double cost, int mustInclude, int depth,
+                             int[] sequence, long routeStarts) {
+                this.unassigned = unassigned;
+                this.last = last;
+                this.duration = duration;
+                this.cost = cost;
+                this.mustInclude = mustInclude;
+                this.depth = depth;
+                this.sequence = sequence;
+                this.routeStarts = routeStarts;
+            }
+
+            @Override
+            protected void compute() {
+                if (depth >= SPLIT_DEPTH) {
+                    search(unassigned, last, duration, cost, mustInclude, depth, sequence, routeStarts, null);
+                    return;
+                }
+                List<NodeTask> forks = new ArrayList<>();
+                search(unassigned, last, duration, cost, mustInclude, depth, sequence, routeStarts, forks);
+                invokeAll(forks);
+            }
+        }
+    }
+}
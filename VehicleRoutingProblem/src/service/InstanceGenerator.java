@@ -0,0 +1,199 @@
+package service;
+
+import contants.Constants;
+import objects.LoadTable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic problem instances from a seed, for scaling and regression runs far beyond the size of the
+ * bundled training data. The same distribution, range, seed and load count always give the same instance.
+ * <p>
+ * Usage example:
+ * <pre>
+ *     InstanceGenerator generator = new InstanceGenerator(InstanceGenerator.Distribution.CLUSTERED, 42L);
+ *     generator.write(100_000, Path.of("clustered-100000.txt"));
+ * </pre>
+ * </p>
+ */
+public class InstanceGenerator {
+    /**
+     * The half width of the square the bundled instances are drawn from, used as the default range.
+     */
+    public static final double DEFAULT_RANGE = 200.0;
+
+    /**
+     * How pickup and drop-off locations are spread around the depot.
+     */
+    public enum Distribution {
+        /** Every coordinate uniform within the range. */
+        UNIFORM,
+        /** Locations gathered around a number of cluster centres spread uniformly within the range. */
+        CLUSTERED,
+        /** Locations on a band around the depot at about three quarters of the range. */
+        RING;
+
+        /**
+         * Looks up a distribution by its name, ignoring case.
+         *
+         * @param name The name of the distribution.
+         * @return The distribution.
+         * @throws IllegalArgumentException if there is no distribution of that name.
+         */
+        public static Distribution parse(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final int CLUSTERS = 12;
+
+    private final Distribution distribution;
+    private final long seed;
+    private final double range;
+
+    /**
+     * Constructs a generator over {@link #DEFAULT_RANGE}.
+     *
+     * @param distribution How the locations are spread.
+     * @param seed         The seed of the generated instances.
+     */
+    public InstanceGenerator(Distribution distribution, long seed) {
+        this(distribution, seed, DEFAULT_RANGE);
+    }
+
+    /**
+     * Constructs a generator.
+     *
+     * @param distribution How the locations are spread.
+     * @param seed         The seed of the generated instances.
+     * @param range        The half width of the square around the depot the locations are drawn from.
+     */
+    public InstanceGenerator(Distribution distribution, long seed, double range) {
+        this.distribution = distribution;
+        this.seed = seed;
+        this.range = range;
+    }
+
+    /**
+     * Retrieves the distribution of the generated instances.
+     *
+     * @return The distribution.
+     */
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    /**
+     * Retrieves the seed of the generated instances.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Generates an instance in memory.
+     *
+     * @param loads The number of loads.
+     * @return The loads of the instance.
+     */
+    public LoadTable generate(int loads) {
+        double[] pickupX = new double[loads];
+        double[] pickupY = new double[loads];
+        double[] dropX = new double[loads];
+        double[] dropY = new double[loads];
+        Sampler sampler = new Sampler(loads);
+        for (int i = 0; i < loads; i++) {
+            sampler.next();
+            pickupX[i] = sampler.x;
+            pickupY[i] = sampler.y;
+            sampler.next();
+            dropX[i] = sampler.x;
+            dropY[i] = sampler.y;
+        }
+        return new LoadTable(pickupX, pickupY, dropX, dropY);
+    }
+
+    /**
+     * Writes an instance in the text format read by {@link DataReader}. The coordinates are identical to those
+     * {@link #generate(int)} returns for the same load count.
+     *
+     * @param loads The number of loads.
+     * @param file  The file to write; replaced if it exists.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void write(int loads, Path file) throws IOException {
+        Sampler sampler = new Sampler(loads);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("loadNumber pickup dropoff");
+            writer.newLine();
+            StringBuilder line = new StringBuilder(96);
+            for (int i = 1; i <= loads; i++) {
+                line.setLength(0);
+                sampler.next();
+                line.append(i).append(" (").append(sampler.x).append(',').append(sampler.y).append(") (");
+                sampler.next();
+                line.append(sampler.x).append(',').append(sampler.y).append(')');
+                writer.append(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Draws locations one after another from the generator's distribution.
+     */
+    private final class Sampler {
+        private final SplittableRandom random;
+        private final double[] centreX = new double[CLUSTERS];
+        private final double[] centreY = new double[CLUSTERS];
+        private double x;
+        private double y;
+
+        private Sampler(int loads) {
+            // Seeding with the load count as well keeps instances of different sizes independent
+            this.random = new SplittableRandom(seed * 31 + loads);
+            for (int c = 0; c < CLUSTERS; c++) {
+                centreX[c] = random.nextDouble(-range, range);
+                centreY[c] = random.nextDouble(-range, range);
+            }
+        }
+
+        private void next() {
+            switch (distribution) {
+                case CLUSTERED: {
+                    int c = random.nextInt(CLUSTERS);
+                    x = clamp(centreX[c] + gaussian() * range / 10);
+                    y = clamp(centreY[c] + gaussian() * range / 10);
+                    break;
+                }
+                case RING: {
+                    double angle = random.nextDouble(2 * Math.PI);
+                    double radius = range * 0.75 + gaussian() * range * 0.05;
+                    x = Constants.DEPOT_LOCATION[0] + radius * Math.cos(angle);
+                    y = Constants.DEPOT_LOCATION[1] + radius * Math.sin(angle);
+                    break;
+                }
+                default:
+                    x = random.nextDouble(-range, range);
+                    y = random.nextDouble(-range, range);
+            }
+        }
+
+        // Box-Muller transform; SplittableRandom has no nextGaussian
+        private double gaussian() {
+            double u = 1.0 - random.nextDouble();
+            return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+        }
+
+        private double clamp(double value) {
+            return Math.max(-range, Math.min(range, value));
+        }
+    }
+}
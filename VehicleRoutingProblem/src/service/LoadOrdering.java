@@ -0,0 +1,134 @@
+package service;
+
+import contants.Constants;
+import objects.LoadTable;
+
+import java.util.Arrays;
+
+/**
+ * The order in which the greedy construction takes the loads, given as one sort key per load: loads are taken in
+ * ascending key order, and loads with equal keys in ascending position.
+ * <p>
+ * The keys are computed once, then the positions are sorted as primitives: each key is packed, as float bits made
+ * sortable as a signed int, into the high half of a {@code long} with the position in the low half, so the order is
+ * one {@link Arrays#parallelSort(long[])}. Keys that only differ beyond float precision are put in exact order
+ * afterwards, so the result is the same as sorting on the double keys.
+ * </p>
+ * <p>
+ * Usage example:
+ * <pre>
+ *     int[] order = LoadOrdering.forName("angle").order(table, loadIndices);
+ * </pre>
+ * </p>
+ */
+@FunctionalInterface
+public interface LoadOrdering {
+
+    /**
+     * Nearest pick-up to the depot first; the order {@link Solution#solve()} uses.
+     */
+    LoadOrdering DEPOT_DISTANCE = LoadTable::depotToPickup;
+
+    /**
+     * A sweep around the depot by the angle of the pick-up, counterclockwise from the negative x axis.
+     */
+    LoadOrdering POLAR_ANGLE = (table, index) -> Math.atan2(table.pickupY(index) - Constants.DEPOT_LOCATION[1],
+            table.pickupX(index) - Constants.DEPOT_LOCATION[0]);
+
+    /**
+     * Farthest pick-up from the depot first, so the loads that are hardest to fit open the routes.
+     */
+    LoadOrdering FARTHEST_FIRST = (table, index) -> -table.depotToPickup(index);
+
+    /**
+     * Most expensive load first, by the length of a route serving the load on its own: depot, pick-up, drop-off, depot.
+     */
+    LoadOrdering ROUTE_COST = (table, index) ->
+            -(table.depotToPickup(index) + table.pickupToDrop(index) + table.dropToDepot(index));
+
+    /**
+     * Calculates the sort key of a load.
+     *
+     * @param table The loads of the problem instance.
+     * @param index The index of the load in the table.
+     * @return The key; loads with smaller keys are taken first.
+     */
+    double key(LoadTable table, int index);
+
+    /**
+     * Orders some of the loads of a table.
+     *
+     * @param table       The loads of the problem instance.
+     * @param loadIndices The indices of the loads to order.
+     * @return The positions in {@code loadIndices} of the loads, in the order they are to be taken.
+     */
+    default int[] order(LoadTable table, int[] loadIndices) {
+        double[] keys = new double[loadIndices.length];
+        for (int p = 0; p < keys.length; p++)
+            keys[p] = key(table, loadIndices[p]);
+        return sort(keys);
+    }
+
+    /**
+     * Sorts positions by their keys.
+     *
+     * @param keys The key of every position; none may be NaN.
+     * @return The positions in ascending key order, equal keys in ascending position.
+     */
+    static int[] sort(double[] keys) {
+        int n = keys.length;
+        long[] packed = new long[n];
+        for (int p = 0; p < n; p++)
+            packed[p] = ((long) sortableBits((float) keys[p]) << 32) | p;
+        Arrays.parallelSort(packed);
+
+        int[] order = new int[n];
+        for (int k = 0; k < n; k++)
+            order[k] = (int) packed[k];
+        // Runs that share a float key are short, so insertion sort puts them in exact order cheaply
+        int runStart = 0;
+        for (int k = 1; k <= n; k++) {
+            if (k < n && packed[k] >>> 32 == packed[runStart] >>> 32)
+                continue;
+            for (int i = runStart + 1; i < k; i++) {
+                int position = order[i];
+                int j = i - 1;
+                while (j >= runStart && keys[order[j]] > keys[position]) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = position;
+            }
+            runStart = k;
+        }
+        return order;
+    }
+
+    /**
+     * Looks up an ordering by the name used on the command line.
+     *
+     * @param name {@code depot}, {@code angle}, {@code farthest} or {@code cost}.
+     * @return The ordering.
+     * @throws IllegalArgumentException if there is no ordering of that name.
+     */
+    static LoadOrdering forName(String name) {
+        switch (name) {
+            case "depot":
+                return DEPOT_DISTANCE;
+            case "angle":
+                return POLAR_ANGLE;
+            case "farthest":
+                return FARTHEST_FIRST;
+            case "cost":
+                return ROUTE_COST;
+            default:
+                throw new IllegalArgumentException("Unknown load order " + name + ", expected depot, angle, farthest or cost");
+        }
+    }
+
+    // Float bits flipped so that signed int order is float order, negative keys included
+    private static int sortableBits(float key) {
+        int bits = Float.floatToIntBits(key);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+}
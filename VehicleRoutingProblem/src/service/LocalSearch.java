@@ -0,0 +1,546 @@
+package service;
+
+import contants.Constants;
+import helpers.NeighbourLists;
+import objects.Driver;
+import objects.Load;
+import objects.LoadTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Improvement phase run after the greedy construction. It repeatedly applies improving moves to the drivers' load
+ * sequences until none is left or the budget runs out:
+ * <ul>
+ *     <li>relocate: move one load to another position, in the same or another route,</li>
+ *     <li>swap: exchange two loads between two routes,</li>
+ *     <li>2-opt: reverse the order of a run of loads within a route,</li>
+ *     <li>route elimination: spread all loads of a short route over the other routes, saving a driver.</li>
+ * </ul>
+ * Moves between loads are granular: a load is only moved next to, or swapped with a load next to, one of its
+ * candidates from {@link NeighbourLists}, the loads whose pick-up is nearest to its drop-off. Each pass therefore
+ * scores O(n*k) moves instead of O(n^2), and the moves left out would rarely have been improving.
+ * Every move is scored by the change in cost of the arcs it touches, in constant time; 2-opt reads cached prefix
+ * sums of the forward and backward arc costs of the route. Only the routes a move changes are recomputed, and only
+ * when the move is applied. A move is only made if every route it changes stays under {@link Constants#MAX_WORKING_TIME},
+ * or, for a route that was already over the limit on its own, does not get longer.
+ * <p>
+ * The search also stops early, keeping every move applied so far, when it is cancelled with {@link #cancel()} or the
+ * thread running it is interrupted. A progress listener can be given every improved assignment as each round ends.
+ * </p>
+ * <p>
+ * Usage example:
+ * <pre>
+ *     LocalSearch search = new LocalSearch(table, 1000, Long.MAX_VALUE);
+ *     List&lt;Driver&gt; improved = search.improve(drivers);
+ * </pre>
+ * </p>
+ */
+public class LocalSearch {
+    /**
+     * The default number of candidate loads each load's moves are restricted to.
+     */
+    public static final int DEFAULT_NEIGHBOURS = 48;
+
+    private static final int DEPOT = -1;
+    // Moves must gain at least this much, so rounding noise cannot make the search cycle
+    private static final double MIN_GAIN = 1e-9;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final LoadTable table;
+    private long timeBudgetNanos;
+    private final long maxIterations;
+    private final int neighbours;
+    private NeighbourLists candidates;
+    private volatile boolean cancelled;
+    private Consumer<List<Driver>> progressListener;
+
+    // Routes as load indices; dead routes have been emptied by a move and are dropped from the result
+    private int[][] routes;
+    private int[] length;
+    private double[] duration;
+    private boolean[] alive;
+    // forward[r][k] is the cost of the arcs between positions 0..k in route order, backward[r][k] in reverse order
+    private double[][] forward;
+    private double[][] backward;
+    private int routeCount;
+    // The route and position of every load, kept up to date by refresh
+    private int[] routeOf;
+    private int[] positionOf;
+
+    private long deadline;
+    private int untilDeadlineCheck;
+    private boolean outOfTime;
+    private long iterations;
+    private long movesApplied;
+
+    /**
+     * Constructs a local search with the given budget, restricting moves to {@link #DEFAULT_NEIGHBOURS} candidates per load.
+     *
+     * @param table            The loads of the problem instance.
+     * @param timeBudgetMillis The wall time the search may take, in milliseconds.
+     * @param maxIterations    The maximum number of rounds; each round tries every move type once over all routes.
+     */
+    public LocalSearch(LoadTable table, long timeBudgetMillis, long maxIterations) {
+        this(table, timeBudgetMillis, maxIterations, DEFAULT_NEIGHBOURS);
+    }
+
+    /**
+     * Constructs a local search with the given budget.
+     *
+     * @param table            The loads of the problem instance.
+     * @param timeBudgetMillis The wall time the search may take, in milliseconds.
+     * @param maxIterations    The maximum number of rounds; each round tries every move type once over all routes.
+     * @param neighbours       The number of candidate loads each load's moves are restricted to.
+     * @throws IllegalArgumentException if neighbours is not positive.
+     */
+    public LocalSearch(LoadTable table, long timeBudgetMillis, long maxIterations, int neighbours) {
+        if (neighbours < 1)
+            throw new IllegalArgumentException("Number of neighbours must be positive: " + neighbours);
+        this.table = table;
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        this.maxIterations = maxIterations;
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Stops the search in progress, and any later one, at its next check of the time budget. Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Sets the wall time each later call to {@link #improve(List)} may take, so one search, with its candidate lists,
+     * can be reused for calls with different budgets.
+     *
+     * @param timeBudgetMillis The wall time the search may take, in milliseconds.
+     */
+    public void setTimeBudget(long timeBudgetMillis) {
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+    }
+
+    /**
+     * Sets the listener given the assignment at the end of every round that applied a move. It is called on the
+     * thread running the search, with new drivers that the search does not touch afterwards.
+     *
+     * @param progressListener The listener, or null for none.
+     */
+    public void setProgressListener(Consumer<List<Driver>> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Improves the given assignment. The input drivers are not modified.
+     *
+     * @param drivers The drivers with their assigned loads, as produced by the construction.
+     * @return New drivers carrying the improved assignment, in the order of the routes they came from.
+     */
+    public List<Driver> improve(List<Driver> drivers) {
+        long start = SolverMetrics.start();
+        // The loads never change, so the candidate lists are built once and reused by later calls
+        if (candidates == null)
+            candidates = NeighbourLists.build(table, neighbours, Runtime.getRuntime().availableProcessors());
+        Load[] loadsByIndex = load(drivers);
+        deadline = System.nanoTime() + timeBudgetNanos;
+        untilDeadlineCheck = DEADLINE_CHECK_INTERVAL;
+        outOfTime = false;
+        iterations = 0;
+        movesApplied = 0;
+
+        boolean improved = true;
+        while (improved && iterations < maxIterations && !outOfTime) {
+            iterations++;
+            improved = relocatePass();
+            improved |= swapPass();
+            improved |= twoOptPass();
+            improved |= eliminationPass();
+            if (improved && progressListener != null && !outOfTime)
+                progressListener.accept(toDrivers(loadsByIndex));
+        }
+        List<Driver> improvedDrivers = toDrivers(loadsByIndex);
+        SolverMetrics.stop(SolverMetrics.Phase.IMPROVEMENT, start);
+        return improvedDrivers;
+    }
+
+    /**
+     * Retrieves the number of rounds the last call to {@link #improve(List)} ran.
+     *
+     * @return The number of rounds.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Retrieves the number of improving moves the last call to {@link #improve(List)} applied.
+     *
+     * @return The number of moves applied.
+     */
+    public long getMovesApplied() {
+        return movesApplied;
+    }
+
+    private Load[] load(List<Driver> drivers) {
+        Load[] loadsByIndex = new Load[table.size()];
+        routeCount = drivers.size();
+        routes = new int[routeCount][];
+        length = new int[routeCount];
+        duration = new double[routeCount];
+        alive = new boolean[routeCount];
+        forward = new double[routeCount][];
+        backward = new double[routeCount][];
+        routeOf = new int[table.size()];
+        positionOf = new int[table.size()];
+        Arrays.fill(routeOf, -1);
+        for (int r = 0; r < routeCount; r++) {
+            List<Load> loads = drivers.get(r).getLoads();
+            routes[r] = new int[Math.max(4, loads.size() * 2)];
+            for (Load load : loads) {
+                int index = load.getLoadNumber() - 1;
+                loadsByIndex[index] = load;
+                routes[r][length[r]++] = index;
+            }
+            alive[r] = length[r] > 0;
+            refresh(r);
+        }
+        return loadsByIndex;
+    }
+
+    private List<Driver> toDrivers(Load[] loadsByIndex) {
+        List<Driver> drivers = new ArrayList<>();
+        for (int r = 0; r < routeCount; r++) {
+            if (!alive[r])
+                continue;
+            Driver driver = new Driver();
+            for (int k = 0; k < length[r]; k++)
+                driver.addLoad(loadsByIndex[routes[r][k]]);
+            drivers.add(driver);
+        }
+        return drivers;
+    }
+
+    /**
+     * Recomputes the duration and the prefix sums of a route after it changed, and where its loads are.
+     */
+    private void refresh(int r) {
+        int n = length[r];
+        if (forward[r] == null || forward[r].length < routes[r].length) {
+            forward[r] = new double[routes[r].length];
+            backward[r] = new double[routes[r].length];
+        }
+        if (n == 0) {
+            duration[r] = 0;
+            return;
+        }
+        int[] route = routes[r];
+        double total = table.depotToPickup(route[0]) + table.pickupToDrop(route[0]);
+        forward[r][0] = 0;
+        backward[r][0] = 0;
+        for (int k = 0; k < n; k++) {
+            routeOf[route[k]] = r;
+            positionOf[route[k]] = k;
+        }
+        for (int k = 1; k < n; k++) {
+            forward[r][k] = forward[r][k - 1] + table.dropToPickup(route[k - 1], route[k]);
+            backward[r][k] = backward[r][k - 1] + table.dropToPickup(route[k], route[k - 1]);
+            total += table.pickupToDrop(route[k]);
+        }
+        duration[r] = total + forward[r][n - 1] + table.dropToDepot(route[n - 1]);
+    }
+
+    private double arc(int from, int to) {
+        if (from == DEPOT)
+            return to == DEPOT ? 0 : table.depotToPickup(to);
+        if (to == DEPOT)
+            return table.dropToDepot(from);
+        return table.dropToPickup(from, to);
+    }
+
+    private int node(int r, int position) {
+        return position < 0 || position >= length[r] ? DEPOT : routes[r][position];
+    }
+
+    // Node at a position of route r as if the load at position removed were taken out
+    private int nodeWithout(int r, int position, int removed) {
+        return node(r, position < removed ? position : position + 1);
+    }
+
+    // The number of loads x is worth placing next to: its candidates, to drive before, and the loads listing it, to drive after
+    private int anchorCount(int x) {
+        return candidates.getK() + candidates.getPredecessorCount(x);
+    }
+
+    private int anchor(int x, int t) {
+        return t < candidates.getK() ? candidates.get(x, t) : candidates.getPredecessor(x, t - candidates.getK());
+    }
+
+    private static boolean fits(double newDuration, double oldDuration) {
+        return newDuration < Constants.MAX_WORKING_TIME || newDuration <= oldDuration;
+    }
+
+    private boolean timeLeft() {
+        if (--untilDeadlineCheck <= 0) {
+            untilDeadlineCheck = DEADLINE_CHECK_INTERVAL;
+            if (System.nanoTime() - deadline >= 0 || cancelled || Thread.currentThread().isInterrupted())
+                outOfTime = true;
+        }
+        return !outOfTime;
+    }
+
+    private boolean relocatePass() {
+        boolean improved = false;
+        for (int a = 0; a < routeCount; a++) {
+            for (int i = 0; alive[a] && i < length[a]; i++) {
+                if (!timeLeft())
+                    return improved;
+                if (tryRelocate(a, i)) {
+                    improved = true;
+                    // Another load now sits at position i
+                    i--;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Tries to move the load at position i of route a right before or right after one of its candidates.
+     */
+    private boolean tryRelocate(int a, int i) {
+        int x = routes[a][i];
+        double removeDelta = arc(node(a, i - 1), node(a, i + 1)) - arc(node(a, i - 1), x) - arc(x, node(a, i + 1))
+                - table.pickupToDrop(x);
+        double emptiedSaving = length[a] == 1 ? Constants.COST_OF_DRIVER : 0;
+        double carry = table.pickupToDrop(x);
+
+        for (int t = 0; t < anchorCount(x); t++) {
+            int c = anchor(x, t);
+            int b = routeOf[c];
+            if (b < 0 || !alive[b])
+                continue;
+            if (b == a) {
+                // Positions in the route without x; position i would put x back where it was
+                int before = positionOf[c] > i ? positionOf[c] - 1 : positionOf[c];
+                for (int q = before; q <= before + 1; q++) {
+                    if (q == i)
+                        continue;
+                    int prev = nodeWithout(a, q - 1, i);
+                    int next = q < length[a] - 1 ? nodeWithout(a, q, i) : DEPOT;
+                    double delta = removeDelta + arc(prev, x) + carry + arc(x, next) - arc(prev, next);
+                    if (delta < -MIN_GAIN && fits(duration[a] + delta, duration[a])) {
+                        moveLoad(a, i, a, q);
+                        return true;
+                    }
+                }
+                continue;
+            }
+            for (int q = positionOf[c]; q <= positionOf[c] + 1; q++) {
+                int prev = node(b, q - 1);
+                int next = node(b, q);
+                double insertDelta = arc(prev, x) + carry + arc(x, next) - arc(prev, next);
+                if (removeDelta + insertDelta - emptiedSaving < -MIN_GAIN
+                        && fits(duration[b] + insertDelta, duration[b])) {
+                    moveLoad(a, i, b, q);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes the load at position i out of route a and inserts it before position q of route b,
+     * where q counts positions of route b after the removal when a and b are the same route.
+     */
+    private void moveLoad(int a, int i, int b, int q) {
+        int x = routes[a][i];
+        removeAt(a, i);
+        insertAt(b, q, x);
+        refresh(a);
+        if (b != a)
+            refresh(b);
+        if (length[a] == 0)
+            alive[a] = false;
+        movesApplied++;
+    }
+
+    private void removeAt(int r, int position) {
+        System.arraycopy(routes[r], position + 1, routes[r], position, length[r] - position - 1);
+        length[r]--;
+    }
+
+    private void insertAt(int r, int position, int load) {
+        if (length[r] == routes[r].length)
+            routes[r] = Arrays.copyOf(routes[r], routes[r].length * 2);
+        System.arraycopy(routes[r], position, routes[r], position + 1, length[r] - position);
+        routes[r][position] = load;
+        length[r]++;
+    }
+
+    /**
+     * Tries to swap every load with a candidate from another route, or with the load right before that candidate,
+     * so the load is then driven right before the candidate.
+     */
+    private boolean swapPass() {
+        boolean improved = false;
+        for (int a = 0; a < routeCount; a++) {
+            for (int i = 0; alive[a] && i < length[a]; i++) {
+                int x = routes[a][i];
+                for (int t = 0; t < anchorCount(x); t++) {
+                    if (!timeLeft())
+                        return improved;
+                    int c = anchor(x, t);
+                    int b = routeOf[c];
+                    if (b < 0 || b == a)
+                        continue;
+                    // The load next to the anchor on the side x should be on, then the anchor itself
+                    int beside = t < candidates.getK() ? positionOf[c] - 1 : positionOf[c] + 1;
+                    if ((beside >= 0 && beside < length[b] && trySwap(a, i, b, beside)) || trySwap(a, i, b, positionOf[c])) {
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    private boolean trySwap(int a, int i, int b, int j) {
+        int x = routes[a][i];
+        int y = routes[b][j];
+        int prevA = node(a, i - 1), nextA = node(a, i + 1);
+        int prevB = node(b, j - 1), nextB = node(b, j + 1);
+        double deltaA = arc(prevA, y) + table.pickupToDrop(y) + arc(y, nextA)
+                - arc(prevA, x) - table.pickupToDrop(x) - arc(x, nextA);
+        double deltaB = arc(prevB, x) + table.pickupToDrop(x) + arc(x, nextB)
+                - arc(prevB, y) - table.pickupToDrop(y) - arc(y, nextB);
+        if (deltaA + deltaB < -MIN_GAIN && fits(duration[a] + deltaA, duration[a]) && fits(duration[b] + deltaB, duration[b])) {
+            routes[a][i] = y;
+            routes[b][j] = x;
+            refresh(a);
+            refresh(b);
+            movesApplied++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean twoOptPass() {
+        boolean improved = false;
+        for (int r = 0; r < routeCount; r++) {
+            for (int i = 0; alive[r] && i < length[r] - 1; i++) {
+                for (int j = i + 1; j < length[r]; j++) {
+                    if (!timeLeft())
+                        return improved;
+                    if (tryTwoOpt(r, i, j))
+                        improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Scores reversing positions i..j of route r: the two boundary arcs change, and the arcs inside the run are
+     * replaced by the same arcs driven the other way, read off the prefix sums.
+     */
+    private boolean tryTwoOpt(int r, int i, int j) {
+        int[] route = routes[r];
+        int before = node(r, i - 1);
+        int after = node(r, j + 1);
+        double delta = arc(before, route[j]) + arc(route[i], after) - arc(before, route[i]) - arc(route[j], after)
+                + (backward[r][j] - backward[r][i]) - (forward[r][j] - forward[r][i]);
+        if (delta < -MIN_GAIN && fits(duration[r] + delta, duration[r])) {
+            for (int lo = i, hi = j; lo < hi; lo++, hi--) {
+                int swap = route[lo];
+                route[lo] = route[hi];
+                route[hi] = swap;
+            }
+            refresh(r);
+            movesApplied++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean eliminationPass() {
+        // Try the shortest routes first, they are the cheapest to spread over the others. The length is packed above
+        // the route number, so a primitive sort orders by length and equal lengths by route number
+        long[] order = new long[routeCount];
+        for (int r = 0; r < routeCount; r++)
+            order[r] = ((long) length[r] << 32) | r;
+        Arrays.sort(order);
+        boolean improved = false;
+        for (long packed : order) {
+            int r = (int) packed;
+            if (!timeLeft())
+                return improved;
+            if (alive[r] && tryEliminate(r))
+                improved = true;
+        }
+        return improved;
+    }
+
+    /**
+     * Inserts every load of route a at its cheapest feasible position in another route, right before or right after
+     * one of its candidates. The route is eliminated if all of its loads find a place and the total cost drops;
+     * otherwise all insertions are undone.
+     */
+    private boolean tryEliminate(int a) {
+        int n = length[a];
+        int[] targetRoute = new int[n];
+        int[] targetPosition = new int[n];
+        double totalDelta = -duration[a] - Constants.COST_OF_DRIVER;
+        int placed = 0;
+        alive[a] = false;
+        for (; placed < n; placed++) {
+            int x = routes[a][placed];
+            double bestDelta = Double.MAX_VALUE;
+            int bestRoute = -1, bestPosition = -1;
+            for (int t = 0; t < anchorCount(x); t++) {
+                int c = anchor(x, t);
+                int b = routeOf[c];
+                if (b < 0 || !alive[b])
+                    continue;
+                for (int q = positionOf[c]; q <= positionOf[c] + 1; q++) {
+                    int prev = node(b, q - 1);
+                    int next = node(b, q);
+                    double delta = arc(prev, x) + table.pickupToDrop(x) + arc(x, next) - arc(prev, next);
+                    if (delta < bestDelta && duration[b] + delta < Constants.MAX_WORKING_TIME) {
+                        bestDelta = delta;
+                        bestRoute = b;
+                        bestPosition = q;
+                    }
+                }
+            }
+            if (bestRoute < 0)
+                break;
+            insertAt(bestRoute, bestPosition, x);
+            refresh(bestRoute);
+            targetRoute[placed] = bestRoute;
+            targetPosition[placed] = bestPosition;
+            totalDelta += bestDelta;
+        }
+
+        if (placed == n && totalDelta < -MIN_GAIN) {
+            length[a] = 0;
+            for (int k = 0; k < n; k++)
+                refresh(targetRoute[k]);
+            refresh(a);
+            movesApplied++;
+            return true;
+        }
+        // Undo in reverse order so each recorded position is still valid
+        for (int k = placed - 1; k >= 0; k--) {
+            removeAt(targetRoute[k], targetPosition[k]);
+            refresh(targetRoute[k]);
+        }
+        refresh(a);
+        alive[a] = true;
+        return false;
+    }
+}
@@ -0,0 +1,274 @@
+package service;
+
+import helpers.DecimalParser;
+import objects.LoadTable;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parses the text instance format by scanning the bytes of a memory-mapped file.
+ * Records of the form {@code n (x,y) (x,y)} are decoded in place and their coordinates written straight into primitive
+ * columns, without creating a String per line or per number. Files larger than a single mapping are processed in
+ * windows that always end on a line boundary.
+ * <p>
+ * A first pass over the bytes counts the lines, so the columns are allocated once at their final size and the table
+ * is built over them without copying; no column is ever held twice, however many loads the file has.
+ * </p>
+ * <p>
+ * Numbers are converted with {@link DecimalParser}; anything it does not handle (more than 19 significant digits,
+ * subnormals, or spellings such as {@code Infinity}) is handed to {@link Double#parseDouble}, so the result matches
+ * {@link DataReader#readFile(String)} value for value. Malformed records are reported with their line and column.
+ * </p>
+ */
+class MappedLoadParser {
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final int windowSize;
+
+    // Current mapping and scan position; column numbers are counted in bytes from lineStart
+    private MappedByteBuffer buffer;
+    private int position;
+    private int limit;
+    private int lineStart;
+    private long lineNumber;
+    private byte[] fallbackBytes = new byte[64];
+
+    // Output columns, sized from the line count
+    private LoadTable.Builder loads;
+
+    MappedLoadParser() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedLoadParser(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Parses the given file.
+     *
+     * @param filePath The path of the file to read.
+     * @param offHeap  Whether the table is held outside the Java heap; see {@link LoadTable#isOffHeap()}.
+     * @return A load table holding the parsed coordinates, in file order.
+     * @throws IOException If the file cannot be read or a record is malformed.
+     */
+    LoadTable parse(String filePath, boolean offHeap) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            // Every line but the header holds at most one record
+            long records = Math.max(countLines(channel, size) - 1, 0);
+            if (records > Integer.MAX_VALUE / Double.BYTES)
+                throw new IOException("The file has more than " + Integer.MAX_VALUE / Double.BYTES + " records");
+            loads = new LoadTable.Builder((int) records, offHeap);
+            lineNumber = 1;
+
+            boolean isFirstLine = true; // to skip the header line
+            long offset = 0;
+            while (offset < size) {
+                long length = Math.min(windowSize, size - offset);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                limit = (int) length;
+                if (offset + length < size) {
+                    // Stop this window after its last complete line; the rest is mapped again with the next window
+                    int cut = limit - 1;
+                    while (cut >= 0 && buffer.get(cut) != '\n')
+                        cut--;
+                    if (cut < 0)
+                        throw new IOException("Line " + lineNumber + " is longer than the mapping window of " + windowSize + " bytes");
+                    limit = cut + 1;
+                }
+                position = 0;
+                while (position < limit) {
+                    lineStart = position;
+                    if (isFirstLine) {
+                        isFirstLine = false;
+                        skipLine();
+                    } else {
+                        parseRecord();
+                    }
+                    lineNumber++;
+                }
+                offset += limit;
+            }
+        } finally {
+            buffer = null;
+        }
+        LoadTable table = loads.build();
+        loads = null;
+        return table;
+    }
+
+    /**
+     * Counts the lines of the file, the last one included whether or not it ends with a line break.
+     */
+    private long countLines(FileChannel channel, long size) throws IOException {
+        long lines = 0;
+        byte last = '\n';
+        for (long offset = 0; offset < size; offset += windowSize) {
+            int length = (int) Math.min(windowSize, size - offset);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            for (int i = 0; i < length; i++) {
+                if (window.get(i) == '\n')
+                    lines++;
+            }
+            last = window.get(length - 1);
+        }
+        return last == '\n' ? lines : lines + 1;
+    }
+
+    private void skipLine() {
+        while (position < limit && buffer.get(position) != '\n')
+            position++;
+        position++;
+    }
+
+    private void parseRecord() throws IOException {
+        // Blank lines, typically a trailing one, carry no record
+        if (atEndOfLine()) {
+            skipLine();
+            return;
+        }
+
+        // The load number is implied by the position of the record, as with the text reader
+        if (peek() == ' ')
+            throw malformed("expected a load number");
+        while (position < limit && peek() != ' ' && peek() != '\n')
+            position++;
+        expect(' ', "a space after the load number");
+
+        expect('(', "'(' opening the pickup location");
+        double pickupX = parseNumber(',');
+        expect(',', "',' between the pickup coordinates");
+        double pickupY = parseNumber(')');
+        expect(')', "')' closing the pickup location");
+        expect(' ', "a space before the drop-off location");
+        expect('(', "'(' opening the drop-off location");
+        double dropX = parseNumber(',');
+        expect(',', "',' between the drop-off coordinates");
+        double dropY = parseNumber(')');
+        expect(')', "')' closing the drop-off location");
+        if (!atEndOfLine())
+            throw malformed("unexpected characters after the drop-off location");
+        skipLine();
+        loads.add(pickupX, pickupY, dropX, dropY);
+    }
+
+    /**
+     * Parses a number that ends at the given terminator, leaving the position on the terminator.
+     */
+    private double parseNumber(char terminator) throws IOException {
+        int start = position;
+        boolean negative = false;
+        if (position < limit && (peek() == '-' || peek() == '+')) {
+            negative = peek() == '-';
+            position++;
+        }
+        long significand = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean overflow = false;
+        boolean seenPoint = false;
+        while (position < limit) {
+            byte b = peek();
+            if (b >= '0' && b <= '9') {
+                anyDigit = true;
+                // Leading zeros are not significant
+                if (digits > 0 || b != '0') {
+                    if (digits == DecimalParser.MAX_DIGITS) {
+                        overflow = true;
+                    } else {
+                        significand = significand * 10 + (b - '0');
+                        digits++;
+                    }
+                }
+                if (seenPoint)
+                    exponent--;
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+            position++;
+        }
+        if (anyDigit && position < limit && (peek() == 'e' || peek() == 'E')) {
+            int exponentStart = position++;
+            boolean negativeExponent = false;
+            if (position < limit && (peek() == '-' || peek() == '+')) {
+                negativeExponent = peek() == '-';
+                position++;
+            }
+            int explicitExponent = 0;
+            boolean anyExponentDigit = false;
+            while (position < limit && peek() >= '0' && peek() <= '9') {
+                anyExponentDigit = true;
+                if (explicitExponent < 100000)
+                    explicitExponent = explicitExponent * 10 + (peek() - '0');
+                position++;
+            }
+            if (!anyExponentDigit)
+                position = exponentStart;
+            else
+                exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (anyDigit && !overflow && position < limit && peek() == terminator) {
+            double value = DecimalParser.toDouble(negative, significand, exponent);
+            if (!Double.isNaN(value))
+                return value;
+        }
+        return parseWithFallback(start, terminator);
+    }
+
+    /**
+     * Hands the text between the start and the terminator to {@link Double#parseDouble}, for the spellings and
+     * precisions the byte scanner does not convert itself.
+     */
+    private double parseWithFallback(int start, char terminator) throws IOException {
+        int end = start;
+        while (end < limit && buffer.get(end) != terminator && buffer.get(end) != '\n')
+            end++;
+        if (end >= limit || buffer.get(end) != terminator) {
+            position = end;
+            throw malformed("expected '" + terminator + "' after a coordinate");
+        }
+        int length = end - start;
+        if (length > fallbackBytes.length)
+            fallbackBytes = new byte[Math.max(length, fallbackBytes.length * 2)];
+        buffer.get(start, fallbackBytes, 0, length);
+        try {
+            double value = Double.parseDouble(new String(fallbackBytes, 0, length, StandardCharsets.US_ASCII));
+            position = end;
+            return value;
+        } catch (NumberFormatException e) {
+            position = start;
+            throw malformed("invalid number");
+        }
+    }
+
+    private byte peek() {
+        return buffer.get(position);
+    }
+
+    private boolean atEndOfLine() {
+        int p = position;
+        while (p < limit && (buffer.get(p) == '\r' || buffer.get(p) == ' '))
+            p++;
+        return p >= limit || buffer.get(p) == '\n';
+    }
+
+    private void expect(char expected, String description) throws IOException {
+        if (position >= limit || peek() != expected)
+            throw malformed("expected " + description);
+        position++;
+    }
+
+    private IOException malformed(String reason) {
+        return new IOException("Malformed record at line " + lineNumber + ", column " + (position - lineStart + 1) + ": " + reason);
+    }
+}
@@ -0,0 +1,163 @@
+package service;
+
+import objects.Driver;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs several randomized greedy constructions in parallel and keeps the cheapest.
+ * Start 0 is the plain deterministic construction of {@link Solution#solve()}; every other start perturbs the order
+ * the loads are taken in and the tie-breaking between candidate drivers, seeded from the base seed and the start's
+ * number. Each start therefore depends only on the seed and its number, and the winner is the cheapest start with
+ * the lowest number, so a given seed and number of starts always produce the same result, whatever the parallelism.
+ * <p>
+ * Usage example:
+ * <pre>
+ *     MultiStartSolver multiStart = new MultiStartSolver(solution, 64, 42L, 8);
+ *     List&lt;Driver&gt; drivers = multiStart.solve();
+ * </pre>
+ * </p>
+ */
+public class MultiStartSolver {
+    public static final double DEFAULT_ORDER_NOISE = 0.3;
+    public static final double DEFAULT_TIE_NOISE = 0.3;
+
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+    private final Solution solution;
+    private final int starts;
+    private final long seed;
+    private final int parallelism;
+    private final double orderNoise;
+    private final double tieNoise;
+
+    private int bestStart = -1;
+    private double bestCost = Double.NaN;
+
+    /**
+     * Constructs a multi-start solver with the default perturbation strengths.
+     *
+     * @param solution    The problem instance to solve.
+     * @param starts      The number of constructions to run.
+     * @param seed        The base seed of the perturbations.
+     * @param parallelism The number of constructions run at the same time.
+     */
+    public MultiStartSolver(Solution solution, int starts, long seed, int parallelism) {
+        this(solution, starts, seed, parallelism, DEFAULT_ORDER_NOISE, DEFAULT_TIE_NOISE);
+    }
+
+    /**
+     * Constructs a multi-start solver.
+     *
+     * @param solution    The problem instance to solve.
+     * @param starts      The number of constructions to run.
+     * @param seed        The base seed of the perturbations.
+     * @param parallelism The number of constructions run at the same time.
+     * @param orderNoise  The maximum relative perturbation of a load's position in the queue.
+     * @param tieNoise    The maximum relative perturbation of a candidate driver's distance.
+     * @throws IllegalArgumentException if starts or parallelism is not positive.
+     */
+    public MultiStartSolver(Solution solution, int starts, long seed, int parallelism, double orderNoise, double tieNoise) {
+        if (starts < 1)
+            throw new IllegalArgumentException("Number of starts must be positive: " + starts);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        this.solution = solution;
+        this.starts = starts;
+        this.seed = seed;
+        this.parallelism = parallelism;
+        this.orderNoise = orderNoise;
+        this.tieNoise = tieNoise;
+    }
+
+    /**
+     * Runs all starts and returns the cheapest result.
+     *
+     * @return The drivers of the cheapest construction.
+     */
+    public List<Driver> solve() {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            StartResult best = pool.invoke(new StartRange(0, starts));
+            bestStart = best.start;
+            bestCost = best.cost;
+            return best.drivers;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Retrieves the number of the start that produced the result of the last {@link #solve()}.
+     *
+     * @return The winning start, or -1 before the first solve.
+     */
+    public int getBestStart() {
+        return bestStart;
+    }
+
+    /**
+     * Retrieves the total cost of the result of the last {@link #solve()}.
+     *
+     * @return The cost of the winning start, or NaN before the first solve.
+     */
+    public double getBestCost() {
+        return bestCost;
+    }
+
+    private StartResult runStart(int start) {
+        Solution worker = solution.fork();
+        List<Driver> drivers = start == 0
+                ? worker.solve()
+                : worker.solvePerturbed(new SplittableRandom(seed + start * SEED_INCREMENT), orderNoise, tieNoise);
+        return new StartResult(start, drivers, worker.getTotalCost(drivers));
+    }
+
+    private static final class StartResult {
+        private final int start;
+        private final List<Driver> drivers;
+        private final double cost;
+
+        private StartResult(int start, List<Driver> drivers, double cost) {
+            this.start = start;
+            this.drivers = drivers;
+            this.cost = cost;
+        }
+
+        // Cheaper wins; equal costs go to the lower start number so the outcome does not depend on scheduling
+        private StartResult better(StartResult other) {
+            if (other.cost < cost || (other.cost == cost && other.start < start))
+                return other;
+            return this;
+        }
+    }
+
+    /**
+     * Splits the range of starts in halves until single starts remain, so idle workers can steal whole sub-ranges.
+     */
+    private final class StartRange extends RecursiveTask<StartResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        private StartRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected StartResult compute() {
+            if (to - from == 1)
+                return runStart(from);
+            int middle = (from + to) >>> 1;
+            ForkJoinTask<StartResult> left = new StartRange(from, middle).fork();
+            StartResult right = new StartRange(middle, to).compute();
+            return left.join().better(right);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package service;
+
+import contants.Constants;
+import objects.Driver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the routes of a solution to a channel through one reusable buffer, formatting numbers straight into it, so
+ * the output step does not allocate per route or per load and issues one write per buffer full.
+ * <p>
+ * Three formats are supported:
+ * <ul>
+ *     <li>{@link Format#TEXT}: one line of load numbers per driver, {@code [1, 8]}, exactly as printed so far,</li>
+ *     <li>{@link Format#CSV}: a {@code driver,sequence,cost} header, then one row per driver with the driver number
+ *     from 1, its load numbers separated by spaces and the cost of the driver with 6 decimals,</li>
+ *     <li>{@link Format#BINARY}: the compact layout below.</li>
+ * </ul>
+ * The output ends with a summary of the total cost, the number of drivers and the longest route duration: lines
+ * starting with {@code #} in text and CSV, the footer in binary. Plain text is read by tools that expect nothing but
+ * route lines, so there the summary is only written when asked for.
+ * </p>
+ * <p>
+ * Binary layout, all values little-endian:
+ * <pre>
+ *  offset  size     field
+ *  0       4        magic "VRPR"
+ *  4       4        format version (int), currently 1
+ *  8       4        driver count d (int)
+ *  12      4        load count n (int), the loads of all drivers together
+ *  16      4d+4n    per driver: its load count (int), then its load numbers (int each), in route order
+ *  end-24  8        total cost (double)
+ *  end-16  8        longest route duration (double)
+ *  end-8   4        driver count d again (int), to check the footer
+ *  end-4   4        magic "VRPR" again
+ * </pre>
+ * </p>
+ */
+public class ResultWriter {
+    private static final Logger LOGGER = Logger.getLogger(ResultWriter.class.getName());
+
+    /**
+     * The version of the binary layout written.
+     */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'V', 'R', 'P', 'R'};
+    private static final int HEADER_SIZE = 16;
+    private static final int FOOTER_SIZE = 24;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Room for the longest number or separator written in one piece
+    private static final int MAX_TOKEN_SIZE = 32;
+    private static final long COST_SCALE = 1_000_000L;
+    private static final int COST_DECIMALS = 6;
+    private static final byte[] CSV_HEADER = "driver,sequence,cost\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The output formats.
+     */
+    public enum Format {
+        TEXT, CSV, BINARY;
+
+        /**
+         * Looks up a format by the name used on the command line.
+         *
+         * @param name {@code text}, {@code csv} or {@code binary}, in any case.
+         * @return The format.
+         * @throws IllegalArgumentException if there is no format of that name.
+         */
+        public static Format parse(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name))
+                    return format;
+            }
+            throw new IllegalArgumentException("Unknown output format " + name + ", expected text, csv or binary");
+        }
+    }
+
+    private final Format format;
+    private final boolean textSummary;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final byte[] digits = new byte[20];
+
+    /**
+     * Constructs a writer that writes the summary in every format except plain text.
+     *
+     * @param format The output format.
+     */
+    public ResultWriter(Format format) {
+        this(format, false);
+    }
+
+    /**
+     * Constructs a writer.
+     *
+     * @param format      The output format.
+     * @param textSummary Whether the summary is written in the plain text format as well.
+     */
+    public ResultWriter(Format format, boolean textSummary) {
+        this.format = format;
+        this.textSummary = textSummary;
+    }
+
+    /**
+     * Writes the routes and the summary to a file.
+     *
+     * @param drivers The drivers with their assigned loads.
+     * @param file    The file to write; replaced if it exists.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void write(List<Driver> drivers, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(drivers, channel);
+        }
+    }
+
+    /**
+     * Writes the routes and the summary to a channel, which is left open. Drivers whose route exceeds the maximum
+     * working time are reported to the log.
+     *
+     * @param drivers The drivers with their assigned loads.
+     * @param channel The channel to write to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public void write(List<Driver> drivers, WritableByteChannel channel) throws IOException {
+        long start = SolverMetrics.start();
+        buffer.clear();
+        double totalCost = 0;
+        double maxDuration = 0;
+        int loadCount = 0;
+        for (Driver driver : drivers) {
+            totalCost += driver.getCost();
+            maxDuration = Math.max(maxDuration, driver.getRouteDistance());
+            loadCount += driver.getLoadCount();
+        }
+
+        if (format == Format.BINARY) {
+            buffer.put(MAGIC).putInt(VERSION).putInt(drivers.size()).putInt(loadCount);
+        } else if (format == Format.CSV) {
+            buffer.put(CSV_HEADER);
+        }
+        for (int d = 0; d < drivers.size(); d++) {
+            Driver driver = drivers.get(d);
+            switch (format) {
+                case TEXT:
+                    writeTextRoute(driver, channel);
+                    break;
+                case CSV:
+                    writeCsvRoute(d + 1, driver, channel);
+                    break;
+                default:
+                    writeBinaryRoute(driver, channel);
+            }
+            if (driver.getRouteDistance() > Constants.MAX_WORKING_TIME)
+                LOGGER.log(Level.SEVERE, "The current driver's working hour exceeds 12 hours ");
+        }
+
+        if (format == Format.BINARY) {
+            ensure(FOOTER_SIZE, channel);
+            buffer.putDouble(totalCost).putDouble(maxDuration).putInt(drivers.size()).put(MAGIC);
+        } else if (format == Format.CSV || textSummary) {
+            // Written once per solution, so formatting through strings costs nothing worth avoiding
+            putAscii(String.format(Locale.ROOT, "# total cost %.6f%n# drivers %d%n# max route duration %.6f%n",
+                    totalCost, drivers.size(), maxDuration), channel);
+        }
+        drain(channel);
+        SolverMetrics.stop(SolverMetrics.Phase.OUTPUT, start);
+    }
+
+    private void writeTextRoute(Driver driver, WritableByteChannel channel) throws IOException {
+        ensure(MAX_TOKEN_SIZE, channel);
+        buffer.put((byte) '[');
+        for (int k = 0; k < driver.getLoadCount(); k++) {
+            ensure(MAX_TOKEN_SIZE, channel);
+            if (k > 0)
+                buffer.put((byte) ',').put((byte) ' ');
+            putDigits(driver.getLoadIndex(k) + 1);
+        }
+        ensure(MAX_TOKEN_SIZE, channel);
+        buffer.put((byte) ']').put((byte) '\n');
+    }
+
+    private void writeCsvRoute(int driverNumber, Driver driver, WritableByteChannel channel) throws IOException {
+        ensure(MAX_TOKEN_SIZE, channel);
+        putDigits(driverNumber);
+        buffer.put((byte) ',');
+        for (int k = 0; k < driver.getLoadCount(); k++) {
+            ensure(MAX_TOKEN_SIZE, channel);
+            if (k > 0)
+                buffer.put((byte) ' ');
+            putDigits(driver.getLoadIndex(k) + 1);
+        }
+        ensure(MAX_TOKEN_SIZE, channel);
+        buffer.put((byte) ',');
+        putFixed(driver.getCost());
+        buffer.put((byte) '\n');
+    }
+
+    private void writeBinaryRoute(Driver driver, WritableByteChannel channel) throws IOException {
+        ensure(Integer.BYTES, channel);
+        buffer.putInt(driver.getLoadCount());
+        for (int k = 0; k < driver.getLoadCount(); k++) {
+            ensure(Integer.BYTES, channel);
+            buffer.putInt(driver.getLoadIndex(k) + 1);
+        }
+    }
+
+    // Writes a non-negative number in decimal
+    private void putDigits(long value) {
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0)
+            buffer.put(digits[--count]);
+    }
+
+    // Writes a non-negative number rounded to COST_DECIMALS decimals
+    private void putFixed(double value) {
+        long scaled = Math.round(value * COST_SCALE);
+        putDigits(scaled / COST_SCALE);
+        buffer.put((byte) '.');
+        long fraction = scaled % COST_SCALE;
+        for (long unit = COST_SCALE / 10; unit > 0; unit /= 10)
+            buffer.put((byte) ('0' + fraction / unit % 10));
+    }
+
+    private void putAscii(String text, WritableByteChannel channel) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            ensure(1, channel);
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void ensure(int bytes, WritableByteChannel channel) throws IOException {
+        if (buffer.remaining() < bytes)
+            drain(channel);
+    }
+
+    private void drain(WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Reads the routes back from a file in the binary format.
+     *
+     * @param file The file to read.
+     * @return The load numbers of every driver, in route order.
+     * @throws IOException If an I/O error occurs, or the file is not a valid result of a supported version.
+     */
+    public static int[][] readBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + FOOTER_SIZE)
+                throw new IOException("Not a binary result file, too short: " + file);
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (data.get(i) != MAGIC[i])
+                    throw new IOException("Not a binary result file, bad magic bytes: " + file);
+            }
+            int version = data.getInt(4);
+            if (version != VERSION)
+                throw new IOException("Unsupported binary result version " + version + ", expected " + VERSION + ": " + file);
+            int driverCount = data.getInt(8);
+            int loadCount = data.getInt(12);
+            if (driverCount < 0 || loadCount < 0
+                    || fileSize != HEADER_SIZE + 4L * driverCount + 4L * loadCount + FOOTER_SIZE
+                    || data.getInt((int) fileSize - 8) != driverCount)
+                throw new IOException("Binary result file size " + fileSize + " does not match its header: " + file);
+            int[][] routes = new int[driverCount][];
+            data.position(HEADER_SIZE);
+            for (int d = 0; d < driverCount; d++) {
+                int length = data.getInt();
+                if (length < 0 || length > data.remaining() / Integer.BYTES)
+                    throw new IOException("Invalid route length " + length + " for driver " + (d + 1) + ": " + file);
+                routes[d] = new int[length];
+                for (int k = 0; k < length; k++)
+                    routes[d][k] = data.getInt();
+            }
+            return routes;
+        }
+    }
+}
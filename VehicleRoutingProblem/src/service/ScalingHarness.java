@@ -0,0 +1,269 @@
+package service;
+
+import objects.Driver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sweeps the instance size over generated instances and records, for each size, the solve time, the peak heap
+ * usage, the driver count and the total cost. The measurements can be stored as a baseline and later runs compared
+ * against it: a run regresses when a size's solve time or cost exceeds its baseline by more than the configured
+ * relative tolerance.
+ * <p>
+ * Every instance is first solved a number of warm-up rounds so the timed solves run compiled code, then solved a
+ * number of timed runs; the solve time is the median of those runs, so one slow run does not fail the comparison.
+ * </p>
+ * <p>
+ * The baseline is a CSV file with the columns
+ * {@code distribution,seed,loads,solveMillis,peakHeapBytes,drivers,totalCost}. Sizes missing from the baseline are
+ * reported but never count as a regression.
+ * </p>
+ */
+public class ScalingHarness {
+    private static final String BASELINE_HEADER = "distribution,seed,loads,solveMillis,peakHeapBytes,drivers,totalCost";
+
+    private final InstanceGenerator generator;
+    private final int warmUpRounds;
+    private final int runs;
+    private final double timeTolerance;
+    private final double costTolerance;
+
+    /**
+     * Constructs a harness.
+     *
+     * @param generator     The generator of the instances.
+     * @param warmUpRounds  The number of untimed solves of every instance before the timed ones.
+     * @param runs          The number of timed solves of every instance.
+     * @param timeTolerance The relative increase in solve time over the baseline that still passes, e.g. 0.5 for 50%.
+     * @param costTolerance The relative increase in total cost over the baseline that still passes.
+     * @throws IllegalArgumentException if warmUpRounds is negative or runs is not positive.
+     */
+    public ScalingHarness(InstanceGenerator generator, int warmUpRounds, int runs, double timeTolerance,
+                          double costTolerance) {
+        if (warmUpRounds < 0)
+            throw new IllegalArgumentException("Number of warm-up rounds must not be negative: " + warmUpRounds);
+        if (runs < 1)
+            throw new IllegalArgumentException("Number of runs must be positive: " + runs);
+        this.generator = generator;
+        this.warmUpRounds = warmUpRounds;
+        this.runs = runs;
+        this.timeTolerance = timeTolerance;
+        this.costTolerance = costTolerance;
+    }
+
+    /**
+     * Generates and solves an instance of every given size, smallest first.
+     *
+     * @param sizes The load counts to run.
+     * @return One measurement per size, with the median solve time and the largest peak heap of its timed runs.
+     */
+    public List<Measurement> run(int[] sizes) {
+        String distribution = generator.getDistribution().name().toLowerCase(Locale.ROOT);
+        List<Measurement> measurements = new ArrayList<>();
+        for (int loads : sizes) {
+            Solution solution = new Solution(generator.generate(loads));
+            for (int round = 0; round < warmUpRounds; round++)
+                solution.fork().solve();
+            double[] solveMillis = new double[runs];
+            long peakHeap = 0;
+            List<Driver> drivers = null;
+            for (int run = 0; run < runs; run++) {
+                Solution timed = solution.fork();
+                System.gc();
+                resetPeakHeap();
+                long start = System.nanoTime();
+                drivers = timed.solve();
+                solveMillis[run] = (System.nanoTime() - start) / 1e6;
+                peakHeap = Math.max(peakHeap, peakHeap());
+            }
+            measurements.add(new Measurement(distribution, generator.getSeed(), loads, median(solveMillis),
+                    peakHeap, drivers.size(), solution.getTotalCost(drivers)));
+        }
+        return measurements;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    /**
+     * Compares measurements against a baseline and prints one line per size.
+     *
+     * @param measurements The measurements of this run.
+     * @param baseline     The baseline measurements, keyed by {@link Measurement#key()}.
+     * @param out          The stream to print to.
+     * @return true if no size regressed.
+     */
+    public boolean compare(List<Measurement> measurements, Map<String, Measurement> baseline, PrintStream out) {
+        boolean passed = true;
+        out.printf("%-10s %8s %10s %12s %12s %10s %8s %14s  %s%n", "dist", "seed", "loads", "solve ms", "base ms", "heap MB",
+                "drivers", "cost", "verdict");
+        for (Measurement measurement : measurements) {
+            Measurement base = baseline.get(measurement.key());
+            String verdict;
+            if (base == null) {
+                verdict = "no baseline";
+            } else {
+                List<String> regressions = new ArrayList<>();
+                if (measurement.solveMillis > base.solveMillis * (1 + timeTolerance))
+                    regressions.add(String.format(Locale.ROOT, "time +%.0f%%", 100 * (measurement.solveMillis / base.solveMillis - 1)));
+                if (measurement.totalCost > base.totalCost * (1 + costTolerance))
+                    regressions.add(String.format(Locale.ROOT, "cost +%.2f%%", 100 * (measurement.totalCost / base.totalCost - 1)));
+                verdict = regressions.isEmpty() ? "ok" : "REGRESSED " + String.join(", ", regressions);
+                passed &= regressions.isEmpty();
+            }
+            out.printf(Locale.ROOT, "%-10s %8d %10d %12.1f %12s %10.1f %8d %14.2f  %s%n", measurement.distribution,
+                    measurement.seed, measurement.loads, measurement.solveMillis,
+                    base == null ? "-" : String.format(Locale.ROOT, "%.1f", base.solveMillis),
+                    measurement.peakHeapBytes / (1024.0 * 1024.0), measurement.drivers, measurement.totalCost, verdict);
+        }
+        return passed;
+    }
+
+    /**
+     * Reads a baseline file.
+     *
+     * @param file The baseline file; a missing file is read as an empty baseline.
+     * @return The baseline measurements, keyed by {@link Measurement#key()}.
+     * @throws IOException If the file cannot be read or is malformed.
+     */
+    public static Map<String, Measurement> readBaseline(Path file) throws IOException {
+        Map<String, Measurement> baseline = new HashMap<>();
+        if (!Files.exists(file))
+            return baseline;
+        List<String> lines = Files.readAllLines(file);
+        for (int i = 1; i < lines.size(); i++) {
+            if (lines.get(i).isBlank())
+                continue;
+            String[] fields = lines.get(i).split(",");
+            if (fields.length != 7)
+                throw new IOException("Malformed baseline line " + (i + 1) + " in " + file + ": " + lines.get(i));
+            try {
+                Measurement measurement = new Measurement(fields[0], Long.parseLong(fields[1]), Integer.parseInt(fields[2]),
+                        Double.parseDouble(fields[3]), Long.parseLong(fields[4]), Integer.parseInt(fields[5]),
+                        Double.parseDouble(fields[6]));
+                baseline.put(measurement.key(), measurement);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed baseline line " + (i + 1) + " in " + file + ": " + lines.get(i), e);
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Stores measurements as the new baseline, keeping the entries of other distributions, seeds and sizes.
+     *
+     * @param file         The baseline file; replaced if it exists.
+     * @param measurements The measurements to store.
+     * @throws IOException If the file cannot be read or written.
+     */
+    public static void writeBaseline(Path file, List<Measurement> measurements) throws IOException {
+        Map<String, Measurement> baseline = readBaseline(file);
+        for (Measurement measurement : measurements)
+            baseline.put(measurement.key(), measurement);
+        List<Measurement> entries = new ArrayList<>(baseline.values());
+        entries.sort(Comparator.comparing((Measurement m) -> m.distribution)
+                .thenComparingLong(m -> m.seed)
+                .thenComparingInt(m -> m.loads));
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write(BASELINE_HEADER);
+            writer.newLine();
+            for (Measurement entry : entries) {
+                // The cost is written in full so that an unchanged solution compares equal
+                writer.write(String.format(Locale.ROOT, "%s,%d,%d,%.3f,%d,%d,", entry.distribution, entry.seed,
+                        entry.loads, entry.solveMillis, entry.peakHeapBytes, entry.drivers) + entry.totalCost);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * The result of solving one generated instance. Immutable.
+     */
+    public static final class Measurement {
+        private final String distribution;
+        private final long seed;
+        private final int loads;
+        private final double solveMillis;
+        private final long peakHeapBytes;
+        private final int drivers;
+        private final double totalCost;
+
+        Measurement(String distribution, long seed, int loads, double solveMillis, long peakHeapBytes, int drivers,
+                    double totalCost) {
+            this.distribution = distribution;
+            this.seed = seed;
+            this.loads = loads;
+            this.solveMillis = solveMillis;
+            this.peakHeapBytes = peakHeapBytes;
+            this.drivers = drivers;
+            this.totalCost = totalCost;
+        }
+
+        /**
+         * Identifies the measurement within a baseline.
+         *
+         * @return The distribution, seed and load count.
+         */
+        public String key() {
+            return distribution + "/" + seed + "/" + loads;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public int getLoads() {
+            return loads;
+        }
+
+        public double getSolveMillis() {
+            return solveMillis;
+        }
+
+        public long getPeakHeapBytes() {
+            return peakHeapBytes;
+        }
+
+        public int getDrivers() {
+            return drivers;
+        }
+
+        public double getTotalCost() {
+            return totalCost;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package service;
+
+import contants.Constants;
+import objects.Driver;
+import objects.Load;
+import objects.LoadTable;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Solves large instances by decomposing them into angular sectors around the depot and solving the sectors in parallel.
+ * <p>
+ * The loads are ordered by the angle of their pick-up around {@link Constants#DEPOT_LOCATION} and cut into sectors of
+ * equal size, so each sector is a wedge of the plane. Every sector is solved on its own by the greedy construction of
+ * {@link Solution#solve()}. Routes cannot cross a sector boundary during that phase, so a repair pass then merges
+ * under-filled routes of neighbouring sectors. On each side of every boundary the under-filled routes whose first
+ * pick-up or last drop-off lies nearest the boundary are taken; every pair of them across the boundary is scored by the
+ * driver and distance a merge saves, and the merges are applied best first as long as the joined route stays within
+ * the maximum working time, in the manner of {@link ClarkeWrightSolver}.
+ * </p>
+ * <p>
+ * Usage example:
+ * <pre>
+ *     List&lt;Driver&gt; drivers = new SectorSolver(16, 8).solve(solution);
+ * </pre>
+ * </p>
+ */
+public class SectorSolver implements SolverStrategy {
+    // Routes shorter than this are under-filled and considered by the repair pass
+    private static final double UNDERFILLED_DURATION = Constants.MAX_WORKING_TIME * 0.9;
+    // Bounds the pairs scored per boundary; the under-filled routes ending nearest the boundary are kept on each side
+    private static final int MAX_REPAIR_ROUTES_PER_SIDE = 256;
+
+    private final int sectors;
+    private final int parallelism;
+
+    private int repairMerges;
+
+    /**
+     * Constructs a sector solver.
+     *
+     * @param sectors     The number of sectors the loads are split into.
+     * @param parallelism The number of sectors solved at the same time.
+     * @throws IllegalArgumentException if sectors or parallelism is not positive.
+     */
+    public SectorSolver(int sectors, int parallelism) {
+        if (sectors < 1)
+            throw new IllegalArgumentException("Number of sectors must be positive: " + sectors);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        this.sectors = sectors;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public List<Driver> solve(Solution solution) {
+        LoadTable table = solution.getTable();
+        int[] ids = solution.loadIndices();
+        int sectorCount = Math.min(sectors, Math.max(ids.length, 1));
+        double[] boundaryAngles = new double[sectorCount];
+        int[][] sectorLoads = split(table, ids, sectorCount, boundaryAngles);
+
+        List<Callable<List<Driver>>> tasks = new ArrayList<>();
+        for (int[] loads : sectorLoads)
+            tasks.add(() -> new Solution(table, loads).solve());
+        List<List<Driver>> sectorDrivers = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<List<Driver>> future : pool.invokeAll(tasks))
+                sectorDrivers.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving sectors", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Solving a sector failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return repair(table, sectorDrivers, boundaryAngles);
+    }
+
+    /**
+     * Retrieves the number of routes the repair pass of the last {@link #solve(Solution)} merged away.
+     *
+     * @return The number of merges.
+     */
+    public int getRepairMerges() {
+        return repairMerges;
+    }
+
+    /**
+     * Splits the loads into sectors of equal size by the angle of their pick-up around the depot.
+     *
+     * @param ids            The load indices of the loads to split.
+     * @param boundaryAngles Receives the angle of the boundary between each sector and the next, the last one being
+     *                       the boundary back to the first sector.
+     * @return The load indices of every sector, sectors in order of angle.
+     */
+    private static int[][] split(LoadTable table, int[] ids, int sectors, double[] boundaryAngles) {
+        int n = ids.length;
+        // Angle shifted to [0, 2 pi] so its float bits order like the angle, load index in the low half
+        long[] keys = new long[n];
+        for (int k = 0; k < n; k++) {
+            int i = ids[k];
+            double angle = Math.atan2(table.pickupY(i) - Constants.DEPOT_LOCATION[1], table.pickupX(i) - Constants.DEPOT_LOCATION[0]) + Math.PI;
+            keys[k] = ((long) Float.floatToIntBits((float) angle) << 32) | i;
+        }
+        Arrays.parallelSort(keys);
+        int[][] sectorLoads = new int[sectors][];
+        for (int s = 0; s < sectors; s++) {
+            int from = (int) ((long) n * s / sectors);
+            int to = (int) ((long) n * (s + 1) / sectors);
+            sectorLoads[s] = new int[to - from];
+            for (int k = from; k < to; k++)
+                sectorLoads[s][k - from] = (int) keys[k];
+            // Halfway between the sectors' outermost pick-ups; the last sector wraps around where the angle does
+            boundaryAngles[s] = s == sectors - 1 || to == 0 || to == n ? Math.PI
+                    : (Float.intBitsToFloat((int) (keys[to - 1] >>> 32)) + Float.intBitsToFloat((int) (keys[to] >>> 32))) / 2 - Math.PI;
+        }
+        return sectorLoads;
+    }
+
+    /**
+     * Merges under-filled routes across sector boundaries and returns the final drivers.
+     */
+    private List<Driver> repair(LoadTable table, List<List<Driver>> sectorDrivers, double[] boundaryAngles) {
+        List<Driver> routes = new ArrayList<>();
+        int[] sectorStart = new int[sectorDrivers.size() + 1];
+        for (int s = 0; s < sectorDrivers.size(); s++) {
+            routes.addAll(sectorDrivers.get(s));
+            sectorStart[s + 1] = routes.size();
+        }
+        int m = routes.size();
+        int[] first = new int[m];
+        int[] last = new int[m];
+        double[] duration = new double[m];
+        for (int r = 0; r < m; r++) {
+            Driver driver = routes.get(r);
+            first[r] = driver.getLoadIndex(0);
+            last[r] = driver.getLoadIndex(driver.getLoadCount() - 1);
+            duration[r] = driver.getRouteDistance();
+        }
+
+        // Pairs of under-filled routes across each boundary, both ways round, encoded as in the savings engine
+        int sectorCount = sectorDrivers.size();
+        int boundaries = sectorCount > 2 ? sectorCount : sectorCount - 1;
+        int[][] before = new int[boundaries][];
+        int[][] after = new int[boundaries][];
+        long pairCount = 0;
+        for (int s = 0; s < boundaries; s++) {
+            int t = (s + 1) % sectorCount;
+            before[s] = nearBoundary(table, first, last, duration, sectorStart[s], sectorStart[s + 1], boundaryAngles[s]);
+            after[s] = nearBoundary(table, first, last, duration, sectorStart[t], sectorStart[t + 1], boundaryAngles[s]);
+            pairCount += 2L * before[s].length * after[s].length;
+        }
+        int[] pairFrom = new int[(int) pairCount];
+        int[] pairTo = new int[(int) pairCount];
+        long[] savings = new long[(int) pairCount];
+        int p = 0;
+        for (int s = 0; s < boundaries; s++) {
+            for (int a : before[s]) {
+                for (int b : after[s]) {
+                    p = addPair(table, last, first, a, b, pairFrom, pairTo, savings, p);
+                    p = addPair(table, last, first, b, a, pairFrom, pairTo, savings, p);
+                }
+            }
+        }
+        Arrays.parallelSort(savings);
+
+        int[] next = new int[m];
+        int[] previous = new int[m];
+        int[] parent = new int[m];
+        Arrays.fill(next, -1);
+        Arrays.fill(previous, -1);
+        for (int r = 0; r < m; r++)
+            parent[r] = r;
+        repairMerges = 0;
+        for (int k = savings.length - 1; k >= 0; k--) {
+            int pair = (int) savings[k];
+            int a = pairFrom[pair];
+            int b = pairTo[pair];
+            if (next[a] != -1 || previous[b] != -1)
+                continue;
+            int rootA = find(parent, a);
+            int rootB = find(parent, b);
+            if (rootA == rootB)
+                continue;
+            double merged = duration[rootA] + duration[rootB] - saving(table, last[a], first[b]);
+            if (!(merged < Constants.MAX_WORKING_TIME))
+                continue;
+            next[a] = b;
+            previous[b] = a;
+            parent[rootB] = rootA;
+            duration[rootA] = merged;
+            repairMerges++;
+        }
+
+        List<Driver> drivers = new ArrayList<>();
+        for (int head = 0; head < m; head++) {
+            if (previous[head] != -1)
+                continue;
+            if (next[head] == -1) {
+                drivers.add(routes.get(head));
+                continue;
+            }
+            Driver driver = new Driver();
+            for (int r = head; r != -1; r = next[r]) {
+                for (Load load : routes.get(r).getLoads())
+                    driver.addLoad(load);
+            }
+            drivers.add(driver);
+        }
+        return drivers;
+    }
+
+    /**
+     * Selects the under-filled routes of a sector whose first pick-up or last drop-off lies nearest a boundary.
+     *
+     * @return Up to {@link #MAX_REPAIR_ROUTES_PER_SIDE} route numbers, nearest first.
+     */
+    private static int[] nearBoundary(LoadTable table, int[] first, int[] last, double[] duration, int from, int to,
+                                      double boundaryAngle) {
+        double directionX = Math.cos(boundaryAngle);
+        double directionY = Math.sin(boundaryAngle);
+        int count = 0;
+        long[] keys = new long[to - from];
+        for (int r = from; r < to; r++) {
+            if (duration[r] < UNDERFILLED_DURATION) {
+                double distance = Math.min(
+                        distanceToRay(table.pickupX(first[r]), table.pickupY(first[r]), directionX, directionY),
+                        distanceToRay(table.dropX(last[r]), table.dropY(last[r]), directionX, directionY));
+                keys[count++] = ((long) Float.floatToIntBits((float) distance) << 32) | r;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        int[] routes = new int[Math.min(count, MAX_REPAIR_ROUTES_PER_SIDE)];
+        for (int k = 0; k < routes.length; k++)
+            routes[k] = (int) keys[k];
+        return routes;
+    }
+
+    // Distance from a point to the ray leaving the depot in the given direction
+    private static double distanceToRay(double x, double y, double directionX, double directionY) {
+        double dx = x - Constants.DEPOT_LOCATION[0];
+        double dy = y - Constants.DEPOT_LOCATION[1];
+        double along = dx * directionX + dy * directionY;
+        return along <= 0 ? Math.sqrt(dx * dx + dy * dy) : Math.abs(dx * directionY - dy * directionX);
+    }
+
+    private static int addPair(LoadTable table, int[] last, int[] first, int from, int to,
+                               int[] pairFrom, int[] pairTo, long[] savings, int p) {
+        pairFrom[p] = from;
+        pairTo[p] = to;
+        float saving = (float) Math.max(0, saving(table, last[from], first[to]));
+        savings[p] = ((long) Float.floatToIntBits(saving) << 32) | p;
+        return p + 1;
+    }
+
+    // Distance saved by driving from one route's last drop-off straight to the next route's first pick-up
+    private static double saving(LoadTable table, int lastLoad, int firstLoad) {
+        return table.dropToDepot(lastLoad) + table.depotToPickup(firstLoad) - table.dropToPickup(lastLoad, firstLoad);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Solves an instance as a whole and decomposed into each of the given numbers of sectors, and prints how many
+     * drivers and how much cost the decomposition adds, along with the wall time of each run.
+     *
+     * @param solution     The problem instance.
+     * @param sectorCounts The numbers of sectors to compare.
+     * @param parallelism  The number of sectors solved at the same time.
+     * @param out          The stream to print to.
+     */
+    public static void printReport(Solution solution, int[] sectorCounts, int parallelism, PrintStream out) {
+        long start = System.nanoTime();
+        List<Driver> whole = solution.fork().solve();
+        double wholeMillis = (System.nanoTime() - start) / 1e6;
+        double wholeCost = solution.getTotalCost(whole);
+        out.printf("%-10s %8s %16s %10s %8s %12s%n", "sectors", "drivers", "cost", "overhead", "merges", "wall ms");
+        out.printf("%-10s %8d %16.2f %10s %8s %12.1f%n", "whole", whole.size(), wholeCost, "-", "-", wholeMillis);
+        for (int sectors : sectorCounts) {
+            SectorSolver solver = new SectorSolver(sectors, parallelism);
+            start = System.nanoTime();
+            List<Driver> drivers = solver.solve(solution);
+            double millis = (System.nanoTime() - start) / 1e6;
+            double cost = solution.getTotalCost(drivers);
+            out.printf("%-10d %8d %16.2f %9.2f%% %8d %12.1f%n", sectors, drivers.size(), cost,
+                    100 * (cost - wholeCost) / wholeCost, solver.getRepairMerges(), millis);
+        }
+    }
+}
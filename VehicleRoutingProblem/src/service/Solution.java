@@ -1,11 +1,16 @@
 package service;
 
 import contants.Constants;
-import helpers.Helper;
+import helpers.DistanceKernel;
+import helpers.DriverSpatialIndex;
 import objects.Driver;
 import objects.Load;
-import objects.LoadQueue;
+import objects.LoadTable;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -31,17 +36,96 @@ import java.util.logging.Logger;
 
 public class Solution {
     private static final Logger LOGGER = Logger.getLogger(Solution.class.getName());
-    private Helper helper=new Helper();
-    private List<Load> loads = new ArrayList<>();
+    // Coordinates and per-load distances in primitive columns, read by the hot paths instead of the Load objects
+    private final LoadTable table;
+    // The table indices of the loads to solve for, or null for every load of the table; Load views are created as
+    // loads are assigned, so the heap used does not grow with the instance
+    private final int[] subset;
+    // Spatial index over the drop-off location each driver currently ends at, kept in step with indexedDrivers
+    private DriverSpatialIndex driverIndex = new DriverSpatialIndex();
+    private List<Driver> indexedDrivers;
 
     public Solution(double[][][] inputLoads) {
-        for (int i=0;i<inputLoads.length;i++) {
-            this.loads.add(new Load(i+1, inputLoads[i][0], inputLoads[i][1]));
-        }
+        this(new LoadTable(inputLoads));
+    }
+
+    /**
+     * Constructs a solution over loads that are already held in a load table.
+     *
+     * @param table The loads of the problem instance.
+     */
+    public Solution(LoadTable table) {
+        this.table = table;
+        this.subset = null;
+    }
+
+    /**
+     * Constructs a solution over part of the loads held in a load table, e.g. one region of a decomposed instance.
+     * The loads keep their load numbers, so the drivers it produces can be combined with those of other parts.
+     *
+     * @param table       The loads of the whole problem instance.
+     * @param loadIndices The indices of the loads to solve for, i.e. their load numbers minus one.
+     */
+    public Solution(LoadTable table, int[] loadIndices) {
+        this.table = table;
+        this.subset = loadIndices.clone();
+    }
+
+    /**
+     * Constructs a solution over the same loads as another one, sharing its immutable load data
+     * but with its own working state, so the two can construct solutions concurrently.
+     *
+     * @param source The solution whose loads are shared.
+     */
+    private Solution(Solution source) {
+        this.table = source.table;
+        this.subset = source.subset;
+    }
+
+    /**
+     * Creates a solution over the same loads whose working state is independent of this one, for running
+     * several constructions in parallel.
+     *
+     * @return A new solution sharing this solution's loads.
+     */
+    Solution fork() {
+        return new Solution(this);
+    }
+
+    /**
+     * Retrieves the load table of this problem instance.
+     *
+     * @return The loads in primitive columns.
+     */
+    LoadTable getTable() {
+        return table;
+    }
+
+    /**
+     * Retrieves whether this solution is over every load of its table, with the load at each position of the loads
+     * list being the load at the same index of the table.
+     *
+     * @return true if the solution is not over part of the table.
+     */
+    boolean coversTable() {
+        return subset == null;
+    }
+
+    /**
+     * Retrieves the number of loads in this problem instance.
+     *
+     * @return The number of loads.
+     */
+    public int getLoadCount() {
+        return subset == null ? table.size() : subset.length;
     }
 
     /**
      * Checks if an existing driver can accommodate a new load based on the driver's working time and the distance between locations.
+     * Only drivers whose last drop-off lies within the cost threshold of the current pick-up are examined; they are looked up
+     * in a spatial index and visited in list order, so the chosen driver is the same as with a scan over every driver.
+     * The index follows the given list as drivers are appended to it; drivers already in the list should only take new loads
+     * through {@link #solve()}, which keeps their indexed location up to date.
      *
      * @param drivers The list of current drivers.
      * @param curLoad The load to be considered for assignment.
@@ -49,28 +133,56 @@ public class Solution {
      * returns null if no suitable existing driver is found(meaning a new driver is needed).
      */
     public Integer checkIfExistingDriverFits(List<Driver> drivers, Load curLoad) {
-        double[] curPickUpLocation=curLoad.getPickUpLocation();
-        double[] curDropOffLocation=curLoad.getDropOffLocation();
-        List<double[]> visitedDropOffLocations = new ArrayList<>();
-        double minCost = Double.MAX_VALUE;
+        return findExistingDriver(drivers, curLoad, null, 0);
+    }
+
+    /**
+     * Implements {@link #checkIfExistingDriverFits(List, Load)}, optionally with randomized tie-breaking: each candidate's
+     * distance is scaled by a random factor between 1 and 1 + noise before drivers are compared. Feasibility and the
+     * working time charged to the chosen driver always use the true distances.
+     *
+     * @param drivers The list of current drivers.
+     * @param curLoad The load to be considered for assignment.
+     * @param random  The source of the perturbation, or null to compare true distances.
+     * @param noise   The maximum relative perturbation of a candidate's distance.
+     * @return The index of the chosen driver, or null if a new driver is needed.
+     */
+    private Integer findExistingDriver(List<Driver> drivers, Load curLoad, SplittableRandom random, double noise) {
+        int curIndex = curLoad.getLoadNumber() - 1;
+        double curPickUpX = table.pickupX(curIndex);
+        double curPickUpY = table.pickupY(curIndex);
+        double minScore = Double.MAX_VALUE;
         int existingDriver = -1;
-        for (int i = 0; i < drivers.size(); i++) {
-            if (drivers.get(i).getWorkingTime() > Constants.MAX_WORKING_TIME)
-                continue;
-            List<Load> loadsForDriver=drivers.get(i).getLoads();
-            double[] visitedDropOffLocation=loadsForDriver.get(loadsForDriver.size()-1).getDropOffLocation();
 
-            // Minimum possible cost for an existing driver: distance(nearestDropOffLocation, curPickUpLocation) + distance(DEPOT_LOCATION, curPickUpLocation)
-            // Minimum possible cost for adding a new driver:  distance(DEPOT_LOCATION, curPickUpLocation) + distance(DEPOT_LOCATION, curPickUpLocation) + cost of driver
-            // When minimum possible cost for adding a new driver< minimum possible cost,
-            //   i.e. distance(nearestDropOffLocation, curPickUpLocation) < cost of driver + distance(DEPOT_LOCATION, curPickUpLocation)
-            // We consider using an existing driver
+        // Minimum possible cost for an existing driver: distance(nearestDropOffLocation, curPickUpLocation) + distance(DEPOT_LOCATION, curPickUpLocation)
+        // Minimum possible cost for adding a new driver:  distance(DEPOT_LOCATION, curPickUpLocation) + distance(DEPOT_LOCATION, curPickUpLocation) + cost of driver
+        // When minimum possible cost for adding a new driver< minimum possible cost,
+        //   i.e. distance(nearestDropOffLocation, curPickUpLocation) < cost of driver + distance(DEPOT_LOCATION, curPickUpLocation)
+        // We consider using an existing driver
+
+        // The distances that only depend on the current load are precomputed in the load table:
+        double depotToCurPickup = table.depotToPickup(curIndex);
+        double curPickupToCurDropoff = table.pickupToDrop(curIndex);
+        double curDropOffToDepot = table.dropToDepot(curIndex);
 
-            // Calculate the 3 types of distances mentioned above:
-            double depotToCurPickup = helper.getEuclideanDistance(Constants.DEPOT_LOCATION, curPickUpLocation);
-            double lastDropOffToCurPickup= helper.getEuclideanDistance(visitedDropOffLocation, curPickUpLocation);
-            double curPickupToCurDropoff = helper.getEuclideanDistance(curPickUpLocation,curDropOffLocation);
-            double curDropOffToDepot = helper.getEuclideanDistance(curDropOffLocation,Constants.DEPOT_LOCATION);
+        // A driver further away than the cost threshold, or than the working time left even for a driver with no
+        // working time yet, can never be chosen, so only drivers inside that radius are candidates
+        double radius = Math.min(Constants.COST_OF_DRIVER + depotToCurPickup,
+                Constants.MAX_WORKING_TIME - curPickupToCurDropoff - curDropOffToDepot);
+        syncDriverIndex(drivers);
+        int candidates = driverIndex.query(curPickUpX, curPickUpY, radius);
+        int workingTimeRejects = 0;
+        int costRejects = 0;
+
+        for (int k = 0; k < candidates; k++) {
+            int i = driverIndex.candidate(k);
+            if (drivers.get(i).getWorkingTime() > Constants.MAX_WORKING_TIME) {
+                if (SolverMetrics.ENABLED)
+                    workingTimeRejects++;
+                continue;
+            }
+            // The index holds the driver's last drop off location
+            double lastDropOffToCurPickup = DistanceKernel.distance(driverIndex.endX(i), driverIndex.endY(i), curPickUpX, curPickUpY);
 
             // If an existing driver could be used
             if (lastDropOffToCurPickup < Constants.COST_OF_DRIVER + depotToCurPickup) {
@@ -78,58 +190,155 @@ public class Solution {
 
                 // Iterate the drivers to find an existing driver who has enough working hour to drive to the location and come back to depot
                 // and would cost the minimum
-                if ( lastDropOffToCurPickup < minCost
+                double score = random == null ? lastDropOffToCurPickup : lastDropOffToCurPickup * (1 + noise * random.nextDouble());
+                if ( score < minScore
                         && drivers.get(i).getWorkingTime() + curCost + curDropOffToDepot < Constants.MAX_WORKING_TIME) {
                     existingDriver = i;
-                    minCost=curCost;
+                    minScore = score + curPickupToCurDropoff;
+                } else if (SolverMetrics.ENABLED
+                        && !(drivers.get(i).getWorkingTime() + curCost + curDropOffToDepot < Constants.MAX_WORKING_TIME)) {
+                    workingTimeRejects++;
                 }
+            } else if (SolverMetrics.ENABLED) {
+                costRejects++;
             }
         }
+        SolverMetrics.recordScan(candidates, workingTimeRejects, costRejects);
+
+        // If an existing driver is found, we return the index; the driver's working time grows when the load is added
+        return existingDriver != -1 ? existingDriver : null;
+    }
+
+    /**
+     * Brings the driver index in line with the given list: starts over when a different list is passed in,
+     * then indexes any drivers appended since the last call.
+     *
+     * @param drivers The list of current drivers.
+     */
+    private void syncDriverIndex(List<Driver> drivers) {
+        if (drivers != indexedDrivers || drivers.size() < driverIndex.size()) {
+            driverIndex.clear();
+            indexedDrivers = drivers;
+        }
+        for (int i = driverIndex.size(); i < drivers.size(); i++)
+            indexDriver(drivers, i);
+    }
 
-        // If an existing driver is found, we update his/her working hour and return the index
-        // The working time would be the cost from the driver's last drop off location to the current pick up location
-        if (existingDriver != -1) {
-            drivers.get(existingDriver).updateWorkingTime(minCost);
-            return existingDriver;
+    /**
+     * Records a driver's current end location in the index, or drops the driver from it once the working time left
+     * is not enough to get back to the depot, since such a driver can never pass the working time check again.
+     *
+     * @param drivers The list of current drivers.
+     * @param i       The index of the driver in the list.
+     */
+    private void indexDriver(List<Driver> drivers, int i) {
+        Driver driver = drivers.get(i);
+        int lastIndex = driver.getLoadIndex(driver.getLoadCount() - 1);
+        // The tolerance keeps rounding in the triangle inequality from removing a driver that could still qualify
+        if (driver.getRouteDistance() > Constants.MAX_WORKING_TIME + 1e-6) {
+            driverIndex.remove(i);
+        } else {
+            driverIndex.put(i, table.dropX(lastIndex), table.dropY(lastIndex));
         }
-        return null;
     }
 
     /**
      * Attempts to solve the load distribution problem by assigning loads to drivers while minimizing cost and adhering to constraints.
      * New drivers are created if existing drivers cannot accommodate new loads.
-     * Throws an IllegalStateException if no drivers are available after processing all loads.
+     * Loads are taken nearest pick-up to the depot first, see {@link LoadOrdering#DEPOT_DISTANCE}.
      *
      * @return A list of drivers with their assigned loads; returns an empty list if an error occurs during processing.
-     * @throws IllegalStateException if there are no drivers available.
      */
     public List<Driver> solve() {
-        try {
-            LoadQueue lq = new LoadQueue();
-            Queue<Load> loadsQueue = lq.getLoadQueue();
+        return solve(LoadOrdering.DEPOT_DISTANCE);
+    }
+
+    /**
+     * Runs the greedy construction of {@link #solve()}, taking the loads in the given order.
+     *
+     * @param ordering The order in which loads are assigned to drivers.
+     * @return A list of drivers with their assigned loads; returns an empty list if an error occurs during processing.
+     */
+    public List<Driver> solve(LoadOrdering ordering) {
+        long start = SolverMetrics.start();
+        int[] order = ordering.order(table, loadIndices());
+        SolverMetrics.stop(SolverMetrics.Phase.QUEUE_BUILD, start);
+        return construct(order, null, 0);
+    }
+
+    /**
+     * Runs the greedy construction with seeded perturbations, for multi-start search. The loads are taken in order of
+     * their pickup's distance from the depot scaled by a random factor between 1 and 1 + orderNoise, and drivers are
+     * compared with randomized tie-breaking as described for {@link #findExistingDriver}.
+     * The same random sequence always gives the same result.
+     *
+     * @param random     The source of the perturbations.
+     * @param orderNoise The maximum relative perturbation of a load's position key.
+     * @param tieNoise   The maximum relative perturbation of a candidate driver's distance.
+     * @return A list of drivers with their assigned loads.
+     */
+    List<Driver> solvePerturbed(SplittableRandom random, double orderNoise, double tieNoise) {
+        long start = SolverMetrics.start();
+        double[] keys = new double[getLoadCount()];
+        for (int p = 0; p < keys.length; p++)
+            keys[p] = table.depotToPickup(indexAt(p)) * (1 + orderNoise * random.nextDouble());
+        int[] order = LoadOrdering.sort(keys);
+        SolverMetrics.stop(SolverMetrics.Phase.QUEUE_BUILD, start);
+        return construct(order, random, tieNoise);
+    }
+
+    /**
+     * Retrieves the load table index of every load of this solution, in the order of the loads list.
+     *
+     * @return The load indices, i.e. the load numbers minus one.
+     */
+    int[] loadIndices() {
+        int[] indices = new int[getLoadCount()];
+        for (int p = 0; p < indices.length; p++)
+            indices[p] = indexAt(p);
+        return indices;
+    }
+
+    /**
+     * Retrieves the load table index of the load at a position in the loads list.
+     *
+     * @param position The position in the loads list.
+     * @return The load index, i.e. the load number minus one.
+     */
+    private int indexAt(int position) {
+        return subset == null ? position : subset[position];
+    }
 
+    /**
+     * Assigns the loads to drivers in the given order.
+     *
+     * @param order    The positions in the loads list, in the order the loads are assigned.
+     * @param random   The source of tie-breaking perturbations, or null for none.
+     * @param tieNoise The maximum relative perturbation of a candidate driver's distance.
+     * @return A list of drivers with their assigned loads; returns an empty list if an error occurs during processing.
+     */
+    private List<Driver> construct(int[] order, SplittableRandom random, double tieNoise) {
+        long start = SolverMetrics.start();
+        try {
             List<Driver> drivers = new ArrayList<>();
-            loadsQueue.addAll(this.loads);
 
-            while (!loadsQueue.isEmpty()) {
-                Load curLoad = loadsQueue.poll();
-                double[] curPickUpLocation = curLoad.getPickUpLocation();
-                double[] curDropOffLocation = curLoad.getDropOffLocation();
+            for (int position : order) {
+                Load curLoad = table.toLoad(indexAt(position));
 
-                Integer existingDriverIndex = checkIfExistingDriverFits(drivers, curLoad);
+                Integer existingDriverIndex = findExistingDriver(drivers, curLoad, random, tieNoise);
 
                 // If there's no driver now or there's no available driver for the current load, we need a new driver
                 if (drivers.isEmpty() || existingDriverIndex == null) {
+                    // Adding the load starts the driver's working hour
                     Driver newDriver = new Driver();
                     newDriver.addLoad(curLoad);
-                    // Update the driver's working hour
-                    double workingTime = helper.getEuclideanDistance(Constants.DEPOT_LOCATION, curPickUpLocation) + helper.getEuclideanDistance(curPickUpLocation, curDropOffLocation);
-                    newDriver.updateWorkingTime(workingTime);
                     drivers.add(newDriver);
+                    SolverMetrics.recordNewDriver();
                 }
                 // Otherwise there's an existing driver found, add the current load to an existing driver
                 else {
                     drivers.get(existingDriverIndex).addLoad(curLoad);
+                    indexDriver(drivers, existingDriverIndex);
                 }
             }
             if (drivers.isEmpty())
@@ -142,27 +351,63 @@ public class Solution {
             LOGGER.log(Level.SEVERE, "An error occurred: " + e.getMessage());
 
             return Collections.emptyList();
+        } finally {
+            SolverMetrics.stop(SolverMetrics.Phase.CONSTRUCTION, start);
         }
     }
 
+    /**
+     * Runs the local search improvement phase on a solution produced by {@link #solve()}.
+     *
+     * @param drivers          The drivers with their assigned loads.
+     * @param timeBudgetMillis The wall time the improvement may take, in milliseconds.
+     * @param maxIterations    The maximum number of improvement rounds.
+     * @return New drivers carrying the improved assignment.
+     * @see LocalSearch
+     */
+    public List<Driver> improve(List<Driver> drivers, long timeBudgetMillis, long maxIterations) {
+        return new LocalSearch(table, timeBudgetMillis, maxIterations).improve(drivers);
+    }
+
     /**
      * Prints the results of the load distribution, including the loads assigned to each driver.
      *
      * @param drivers The list of drivers with their assigned loads.
      */
     public void printResult(List<Driver> drivers) {
+        printResult(drivers, System.out);
+    }
+
+    /**
+     * Prints the results of the load distribution to the given stream, one line of load numbers per driver,
+     * in the plain text format of {@link ResultWriter}.
+     *
+     * @param drivers The list of drivers with their assigned loads.
+     * @param out     The stream to print to.
+     */
+    public void printResult(List<Driver> drivers, PrintStream out) {
+        try {
+            new ResultWriter(ResultWriter.Format.TEXT).write(drivers, Channels.newChannel(out));
+        } catch (IOException e) {
+            // A PrintStream reports its errors through checkError rather than by throwing
+            throw new UncheckedIOException(e);
+        }
+        out.flush();
+    }
+
+    /**
+     * Calculates the total cost of a solution: the cost of every driver plus the distance each of them drives,
+     * from the depot and back.
+     *
+     * @param drivers The list of drivers with their assigned loads.
+     * @return The total cost.
+     */
+    public double getTotalCost(List<Driver> drivers) {
         double totalCost = 0;
-        for (int i=0;i<drivers.size();i++) {
-            Driver driver=drivers.get(i);
-            List<Load> loads = driver.getLoads();
-            List<Integer> loadNumbers = new ArrayList<>();
-            loads.forEach(load -> loadNumbers.add(load.getLoadNumber()));
-            System.out.println(loadNumbers);
-            // Calculate the correct total cost for each driver
-            if(helper.getTotalDistance(loads)>720)
-                LOGGER.log(Level.SEVERE, "The current driver's working hour exceeds 12 hours ");
-            totalCost+=helper.getTotalDistance(loads)+Constants.COST_OF_DRIVER;
+        for (Driver driver : drivers) {
+            totalCost += driver.getCost();
         }
+        return totalCost;
     }
 
 }
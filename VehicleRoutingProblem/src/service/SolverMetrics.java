@@ -0,0 +1,353 @@
+package service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process wide instrumentation of the solver: how hard the construction searches for drivers and how long each phase
+ * of a run takes.
+ * <p>
+ * Metrics are off unless the JVM is started with {@code -Dvrp.metrics=true}. The switch is read once into the
+ * constant {@link #ENABLED}, and every recording call is guarded by it, so with metrics off the JIT compiler removes
+ * the instrumentation from the hot paths entirely. With metrics on, the counters are {@link LongAdder}s and the
+ * histograms atomic arrays, so constructions running in parallel record without contention on a shared lock.
+ * </p>
+ * <p>
+ * When enabled, the metrics are exposed through JMX as {@value #OBJECT_NAME}, see {@link SolverMetricsMXBean}, and,
+ * if {@code -Dvrp.metrics.json=<file>} is given as well, written to that file as JSON when the JVM exits.
+ * </p>
+ * <p>
+ * Usage example:
+ * <pre>
+ *     long start = SolverMetrics.start();
+ *     ...
+ *     SolverMetrics.stop(SolverMetrics.Phase.CONSTRUCTION, start);
+ * </pre>
+ * </p>
+ */
+public final class SolverMetrics implements SolverMetricsMXBean {
+    /**
+     * Whether metrics are recorded, from the {@code vrp.metrics} system property.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("vrp.metrics");
+
+    /**
+     * The JMX object name the metrics are registered under.
+     */
+    public static final String OBJECT_NAME = "vrp:type=SolverMetrics";
+
+    private static final Logger LOGGER = Logger.getLogger(SolverMetrics.class.getName());
+    private static final SolverMetrics INSTANCE = new SolverMetrics();
+
+    /**
+     * The timed phases of a run.
+     */
+    public enum Phase {
+        /** Reading an instance file. */
+        PARSE,
+        /** Ordering the loads before the construction. */
+        QUEUE_BUILD,
+        /** Assigning the loads to drivers. */
+        CONSTRUCTION,
+        /** The local search improvement phase. */
+        IMPROVEMENT,
+        /** Writing the routes. */
+        OUTPUT
+    }
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder driversScanned = new LongAdder();
+    private final LongAdder workingTimeRejects = new LongAdder();
+    private final LongAdder costThresholdRejects = new LongAdder();
+    private final LongAdder newDrivers = new LongAdder();
+    private final Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+
+    static {
+        if (ENABLED)
+            INSTANCE.install();
+    }
+
+    private SolverMetrics() {
+        for (Phase phase : Phase.values())
+            phases.put(phase, new Histogram());
+    }
+
+    private void install() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            LOGGER.log(Level.SEVERE, "Could not register solver metrics with JMX: " + e.getMessage());
+        }
+        String jsonPath = System.getProperty("vrp.metrics.json");
+        if (jsonPath != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try (Writer writer = Files.newBufferedWriter(Path.of(jsonPath))) {
+                    writer.write(toJson());
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "Could not write solver metrics to " + jsonPath + ": " + e.getMessage());
+                }
+            }, "solver-metrics-dump"));
+        }
+    }
+
+    /**
+     * Retrieves the metrics of this process.
+     *
+     * @return The metrics, which only change if {@link #ENABLED} is true.
+     */
+    public static SolverMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @return The start time to pass to {@link #stop(Phase, long)}, or 0 if metrics are disabled.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Finishes timing a phase and records its duration.
+     *
+     * @param phase The phase.
+     * @param start The value {@link #start()} returned when the phase began.
+     */
+    public static void stop(Phase phase, long start) {
+        if (ENABLED)
+            INSTANCE.phases.get(phase).record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records the driver search for one load.
+     *
+     * @param scanned            The number of candidate drivers examined.
+     * @param workingTimeRejects The number of candidates rejected on the working time check.
+     * @param costRejects        The number of candidates rejected on the cost threshold check.
+     */
+    static void recordScan(int scanned, int workingTimeRejects, int costRejects) {
+        if (ENABLED) {
+            INSTANCE.loads.increment();
+            INSTANCE.driversScanned.add(scanned);
+            INSTANCE.workingTimeRejects.add(workingTimeRejects);
+            INSTANCE.costThresholdRejects.add(costRejects);
+        }
+    }
+
+    /**
+     * Records that the construction started a new driver.
+     */
+    static void recordNewDriver() {
+        if (ENABLED)
+            INSTANCE.newDrivers.increment();
+    }
+
+    @Override
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    @Override
+    public long getDriversScanned() {
+        return driversScanned.sum();
+    }
+
+    @Override
+    public double getDriversScannedPerLoad() {
+        long loadCount = loads.sum();
+        return loadCount == 0 ? 0 : (double) driversScanned.sum() / loadCount;
+    }
+
+    @Override
+    public long getWorkingTimeRejects() {
+        return workingTimeRejects.sum();
+    }
+
+    @Override
+    public long getCostThresholdRejects() {
+        return costThresholdRejects.sum();
+    }
+
+    @Override
+    public long getNewDrivers() {
+        return newDrivers.sum();
+    }
+
+    @Override
+    public Map<String, PhaseStats> getPhases() {
+        Map<String, PhaseStats> stats = new LinkedHashMap<>();
+        for (Map.Entry<Phase, Histogram> entry : phases.entrySet()) {
+            if (entry.getValue().count.sum() > 0)
+                stats.put(entry.getKey().name().toLowerCase(Locale.ROOT), entry.getValue().stats());
+        }
+        return stats;
+    }
+
+    @Override
+    public void reset() {
+        loads.reset();
+        driversScanned.reset();
+        workingTimeRejects.reset();
+        costThresholdRejects.reset();
+        newDrivers.reset();
+        for (Histogram histogram : phases.values())
+            histogram.reset();
+    }
+
+    /**
+     * Renders the metrics as a JSON object.
+     *
+     * @return The JSON text.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n");
+        json.append("  \"loads\": ").append(getLoads()).append(",\n");
+        json.append("  \"driversScanned\": ").append(getDriversScanned()).append(",\n");
+        json.append(String.format(Locale.ROOT, "  \"driversScannedPerLoad\": %.3f,%n", getDriversScannedPerLoad()));
+        json.append("  \"workingTimeRejects\": ").append(getWorkingTimeRejects()).append(",\n");
+        json.append("  \"costThresholdRejects\": ").append(getCostThresholdRejects()).append(",\n");
+        json.append("  \"newDrivers\": ").append(getNewDrivers()).append(",\n");
+        json.append("  \"phases\": {");
+        String separator = "\n";
+        for (Map.Entry<String, PhaseStats> entry : getPhases().entrySet()) {
+            PhaseStats stats = entry.getValue();
+            json.append(separator).append(String.format(Locale.ROOT,
+                    "    \"%s\": {\"count\": %d, \"totalMillis\": %.3f, \"meanMillis\": %.3f, \"p50Millis\": %.3f,"
+                            + " \"p90Millis\": %.3f, \"p99Millis\": %.3f, \"maxMillis\": %.3f}",
+                    entry.getKey(), stats.getCount(), stats.getTotalMillis(), stats.getMeanMillis(), stats.getP50Millis(),
+                    stats.getP90Millis(), stats.getP99Millis(), stats.getMaxMillis()));
+            separator = ",\n";
+        }
+        json.append(separator.equals("\n") ? "}\n" : "\n  }\n").append("}\n");
+        return json.toString();
+    }
+
+    /**
+     * Latency statistics of one phase, as exposed through JMX. Percentiles are upper bounds of histogram buckets and
+     * so within 12.5% of the true value.
+     */
+    public static final class PhaseStats {
+        private final long count;
+        private final double totalMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        private PhaseStats(long count, double totalMillis, double p50Millis, double p90Millis, double p99Millis, double maxMillis) {
+            this.count = count;
+            this.totalMillis = totalMillis;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getTotalMillis() {
+            return totalMillis;
+        }
+
+        public double getMeanMillis() {
+            return count == 0 ? 0 : totalMillis / count;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+
+    /**
+     * A lock-free log-linear histogram of durations in nanoseconds: every power of two is split into
+     * {@value #SUB_BUCKETS} equal buckets.
+     */
+    private static final class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS)
+                return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long bucketUpperBound(int bucket) {
+            if (bucket < SUB_BUCKETS)
+                return bucket;
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = bucket % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+
+        private long percentile(double quantile, long samples) {
+            long rank = (long) Math.ceil(quantile * samples);
+            long seen = 0;
+            for (int b = 0; b < buckets.length(); b++) {
+                seen += buckets.get(b);
+                if (seen >= rank)
+                    return Math.min(bucketUpperBound(b), max.get());
+            }
+            return max.get();
+        }
+
+        PhaseStats stats() {
+            long samples = count.sum();
+            return new PhaseStats(samples, total.sum() / 1e6, percentile(0.5, samples) / 1e6,
+                    percentile(0.9, samples) / 1e6, percentile(0.99, samples) / 1e6, max.get() / 1e6);
+        }
+
+        void reset() {
+            for (int b = 0; b < buckets.length(); b++)
+                buckets.set(b, 0);
+            count.reset();
+            total.reset();
+            max.reset();
+        }
+    }
+}
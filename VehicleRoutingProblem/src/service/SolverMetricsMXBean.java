@@ -0,0 +1,65 @@
+package service;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link SolverMetrics}, registered with the platform MBean server as
+ * {@value SolverMetrics#OBJECT_NAME} when metrics are enabled. All counts are cumulative since start-up or the last
+ * {@link #reset()}, over every construction run in the process.
+ */
+public interface SolverMetricsMXBean {
+
+    /**
+     * Retrieves the number of loads the construction has placed.
+     *
+     * @return The number of loads.
+     */
+    long getLoads();
+
+    /**
+     * Retrieves the number of candidate drivers examined while placing loads.
+     *
+     * @return The number of drivers scanned.
+     */
+    long getDriversScanned();
+
+    /**
+     * Retrieves the average number of candidate drivers examined per load.
+     *
+     * @return The drivers scanned per load, or 0 if no load was placed.
+     */
+    double getDriversScannedPerLoad();
+
+    /**
+     * Retrieves the number of candidates rejected because the load would take them over the maximum working time.
+     *
+     * @return The number of working time rejections.
+     */
+    long getWorkingTimeRejects();
+
+    /**
+     * Retrieves the number of candidates rejected because reaching the pick-up would cost more than a new driver.
+     *
+     * @return The number of cost threshold rejections.
+     */
+    long getCostThresholdRejects();
+
+    /**
+     * Retrieves the number of drivers the construction started.
+     *
+     * @return The number of new drivers.
+     */
+    long getNewDrivers();
+
+    /**
+     * Retrieves the latency statistics of every phase that has been timed, keyed by phase name.
+     *
+     * @return The statistics per phase.
+     */
+    Map<String, SolverMetrics.PhaseStats> getPhases();
+
+    /**
+     * Sets every counter and histogram back to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,297 @@
+package service;
+
+import objects.Driver;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the solver resident and answers a stream of problem instances, so small instances are not dominated by JVM
+ * startup and JIT warm-up. Requests arrive over a local socket, one connection per client carrying any number of
+ * requests in turn, or framed on the standard input.
+ * <p>
+ * A request is an instance in the text format read by {@link DataReader}, header line included, followed by a line
+ * holding only {@value #END_OF_FRAME}. Blank lines between requests are ignored. The response is the routes in the
+ * plain text format of {@link ResultWriter}, streamed as they are formatted, then the {@code #} summary lines and the
+ * {@value #END_OF_FRAME} line. A request that cannot be read or solved is answered with a single line starting with
+ * {@code ERROR} and the {@value #END_OF_FRAME} line; it does not affect any other request.
+ * </p>
+ * <p>
+ * Every request is parsed and solved on its own thread, with its own {@link Solution}: a virtual thread when the
+ * runtime has them, a pooled platform thread otherwise. At most {@code maxConcurrent} requests are in progress at a
+ * time. A request is only read once it is admitted, so when the limit is reached further input is left unread and
+ * clients are slowed down by the transport instead of filling the heap. On the standard input responses are written
+ * in request order and a request stays admitted until its response is written, so a slow request holds back reading
+ * rather than letting solved responses pile up behind it. A request that fails in a way the solver does not report
+ * itself is still answered with an {@code ERROR} response in its place in the order.
+ * </p>
+ * <p>
+ * Usage example:
+ * <pre>
+ *     SolverServer server = new SolverServer(SolverStrategy.forName("greedy"), 8);
+ *     server.serve(new ServerSocket(7070, 50, InetAddress.getLoopbackAddress()));
+ * </pre>
+ * </p>
+ */
+public class SolverServer implements AutoCloseable {
+    /**
+     * The line that ends every request and every response.
+     */
+    public static final String END_OF_FRAME = ".";
+
+    private static final Logger LOGGER = Logger.getLogger(SolverServer.class.getName());
+    private static final byte[] END_OF_FRAME_LINE = (END_OF_FRAME + "\n").getBytes(StandardCharsets.US_ASCII);
+    // Sizes and rounds of the warm-up instances solved before the first request is accepted
+    private static final int WARM_UP_LOADS = 200;
+    private static final int WARM_UP_ROUNDS = 200;
+
+    private final SolverStrategy strategy;
+    private final Semaphore admitted;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a server.
+     *
+     * @param strategy      The algorithm every request is solved with.
+     * @param maxConcurrent The maximum number of requests in progress at the same time.
+     * @throws IllegalArgumentException if maxConcurrent is not positive.
+     */
+    public SolverServer(SolverStrategy strategy, int maxConcurrent) {
+        if (maxConcurrent < 1)
+            throw new IllegalArgumentException("Concurrency limit must be positive: " + maxConcurrent);
+        this.strategy = strategy;
+        this.admitted = new Semaphore(maxConcurrent, true);
+        this.executor = newRequestExecutor();
+    }
+
+    /**
+     * Creates the executor requests run on: one virtual thread per request when the runtime provides
+     * {@code Executors.newVirtualThreadPerTaskExecutor}, looked up reflectively so the server also runs on runtimes
+     * without it, and a cached pool of daemon threads otherwise.
+     *
+     * @return The executor.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "vrp-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Solves generated instances until the solver's hot paths are compiled, so the first requests are answered as
+     * fast as later ones. The exact search only takes small instances and may run for its whole time limit on each,
+     * so for it the greedy construction it starts from is warmed up instead.
+     */
+    public void warmUp() {
+        SolverStrategy warmUpStrategy = strategy instanceof ExactSolver ? SolverStrategy.forName("greedy") : strategy;
+        InstanceGenerator generator = new InstanceGenerator(InstanceGenerator.Distribution.CLUSTERED, 0);
+        for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+            Solution solution = new Solution(generator.generate(WARM_UP_LOADS));
+            warmUpStrategy.solve(solution);
+        }
+    }
+
+    /**
+     * Accepts connections until the server socket is closed, handling every connection on its own thread.
+     *
+     * @param serverSocket The bound socket to accept connections on.
+     * @throws IOException If accepting fails for another reason than the socket being closed.
+     */
+    public void serve(ServerSocket serverSocket) throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed())
+                    return;
+                throw e;
+            }
+            executor.execute(() -> handleConnection(socket));
+        }
+    }
+
+    /**
+     * Answers the requests of one connection in turn until the client closes it.
+     */
+    private void handleConnection(Socket socket) {
+        try (socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            WritableByteChannel out = Channels.newChannel(socket.getOutputStream());
+            String first;
+            // Waiting for the next request does not take a place among the requests in progress
+            while ((first = nextRequestLine(in)) != null) {
+                admitted.acquire();
+                try {
+                    String frame = readFrame(first, in);
+                    if (frame == null)
+                        return;
+                    respond(frame, out);
+                } finally {
+                    admitted.release();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Connection from " + socket.getRemoteSocketAddress() + " failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Answers the requests framed on an input stream until it ends, solving up to the concurrency limit of them at a
+     * time and writing the responses in request order.
+     *
+     * @param input  The stream the requests are read from.
+     * @param output The stream the responses are written to.
+     * @throws IOException If reading the requests or writing a response fails.
+     */
+    public void serve(InputStream input, OutputStream output) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(input, StandardCharsets.US_ASCII));
+        WritableByteChannel out = Channels.newChannel(output);
+        AtomicBoolean outputFailed = new AtomicBoolean();
+        CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+        try {
+            String first;
+            while (!outputFailed.get() && (first = nextRequestLine(in)) != null) {
+                admitted.acquire();
+                String frame = readFrame(first, in);
+                if (frame == null) {
+                    admitted.release();
+                    break;
+                }
+                CompletableFuture<byte[]> response = CompletableFuture.supplyAsync(() -> respond(frame), executor);
+                // A failed request is answered in its place; the answer never fails, so every write below runs and
+                // releases its request
+                CompletableFuture<byte[]> answer = response.handle((bytes, failure) ->
+                        failure == null ? bytes : errorResponse(failure instanceof CompletionException ? failure.getCause() : failure));
+                // A write that failed beyond the errors caught below stops the output but not the chain
+                written = written.exceptionally(failure -> {
+                    outputFailed.set(true);
+                    LOGGER.log(Level.SEVERE, "Writing a response failed: " + failure);
+                    return null;
+                }).thenCombine(answer, (previous, bytes) -> {
+                    try {
+                        if (!outputFailed.get())
+                            writeFully(out, ByteBuffer.wrap(bytes));
+                        output.flush();
+                    } catch (IOException | RuntimeException e) {
+                        outputFailed.set(true);
+                        LOGGER.log(Level.SEVERE, "Writing a response failed: " + e.getMessage());
+                    } finally {
+                        admitted.release();
+                    }
+                    return null;
+                });
+            }
+            written.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading requests", e);
+        }
+        if (outputFailed.get())
+            throw new IOException("Writing a response failed");
+    }
+
+    // Skips blank lines between requests; null once the input ends
+    private static String nextRequestLine(BufferedReader in) throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+        } while (line != null && line.isBlank());
+        return line;
+    }
+
+    // The request starting with the given line, without its end line; null if the input ends before the end line
+    private static String readFrame(String first, BufferedReader in) throws IOException {
+        StringBuilder frame = new StringBuilder(first).append('\n');
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals(END_OF_FRAME))
+                return frame.toString();
+            frame.append(line).append('\n');
+        }
+        return null;
+    }
+
+    /**
+     * Solves one request into a buffered response.
+     */
+    private byte[] respond(String frame) {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        try {
+            respond(frame, Channels.newChannel(response));
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        return response.toByteArray();
+    }
+
+    /**
+     * Solves one request and streams the response to a channel. Failures of the request itself are reported in the
+     * response; only failures to write it are thrown.
+     */
+    private void respond(String frame, WritableByteChannel out) throws IOException {
+        List<Driver> drivers;
+        try {
+            Solution solution = new Solution(DataReader.readTable(new BufferedReader(new StringReader(frame)), false));
+            drivers = strategy.solve(solution);
+        } catch (IOException | RuntimeException e) {
+            writeFully(out, ByteBuffer.wrap(errorResponse(e)));
+            return;
+        }
+        new ResultWriter(ResultWriter.Format.TEXT, true).write(drivers, out);
+        writeFully(out, ByteBuffer.wrap(END_OF_FRAME_LINE));
+    }
+
+    /**
+     * Formats the response to a request that failed: the {@code ERROR} line and the end line.
+     */
+    private static byte[] errorResponse(Throwable failure) {
+        String message = String.valueOf(failure.getMessage()).replace('\n', ' ');
+        return ("ERROR " + failure.getClass().getSimpleName() + ": " + message + "\n" + END_OF_FRAME + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining())
+            out.write(bytes);
+    }
+
+    /**
+     * Stops the request threads; requests in progress are interrupted.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,49 @@
+package service;
+
+import objects.Driver;
+
+import java.util.List;
+
+/**
+ * An algorithm that builds routes for every load of a problem instance.
+ * <p>
+ * Usage example:
+ * <pre>
+ *     SolverStrategy strategy = SolverStrategy.forName("savings");
+ *     List&lt;Driver&gt; drivers = strategy.solve(solution);
+ * </pre>
+ * </p>
+ */
+@FunctionalInterface
+public interface SolverStrategy {
+
+    /**
+     * Assigns every load of the instance to a driver.
+     *
+     * @param solution The problem instance.
+     * @return The drivers with their assigned loads.
+     */
+    List<Driver> solve(Solution solution);
+
+    /**
+     * Looks up a strategy by the name used on the command line.
+     *
+     * @param name {@code greedy} for the nearest driver construction of {@link Solution#solve()}, {@code savings}
+     *             for the {@link ClarkeWrightSolver}, or {@code exact} for the {@link ExactSolver} with its default
+     *             time limit.
+     * @return The strategy.
+     * @throws IllegalArgumentException if there is no strategy of that name.
+     */
+    static SolverStrategy forName(String name) {
+        switch (name) {
+            case "greedy":
+                return Solution::solve;
+            case "savings":
+                return new ClarkeWrightSolver();
+            case "exact":
+                return new ExactSolver();
+            default:
+                throw new IllegalArgumentException("Unknown strategy " + name + ", expected greedy, savings or exact");
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRunnerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void solvesAnInstanceOnceWhenItsConvertedFileIsNextToIt() throws IOException {
+        Path text = directory.resolve("problem1.txt");
+        Files.writeString(text, "loadNumber pickup dropoff\n1 (-50.1,80.0) (90.1,12.2)\n2 (-24.5,-19.2) (98.5,1.8)\n");
+        BinaryInstanceFormat.convert(text.toString(), BinaryInstanceFormat.defaultBinaryPath(text.toString()));
+        Files.writeString(directory.resolve("problem2.txt"), "loadNumber pickup dropoff\n1 (10.0,0.0) (20.0,0.0)\n");
+
+        List<Path> instances = BatchRunner.findInstances(directory.toString());
+        assertEquals(List.of(directory.resolve("problem1.vrpb"), directory.resolve("problem2.txt")), instances);
+
+        Path output = directory.resolve("out");
+        List<BatchRunner.InstanceResult> results = new BatchRunner(output, 2).run(instances);
+        assertEquals(2, results.size());
+        for (BatchRunner.InstanceResult result : results)
+            assertNull(result.getError());
+        assertEquals(2, results.get(0).getLoadCount());
+        assertTrue(Files.exists(output.resolve("problem1.out")));
+        assertTrue(Files.exists(output.resolve("problem2.out")));
+    }
+}
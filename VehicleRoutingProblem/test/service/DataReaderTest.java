@@ -0,0 +1,38 @@
+package service;
+
+import objects.LoadTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsAMappedFileIntoTheRequestedStorage() throws IOException {
+        Path text = directory.resolve("problem1.txt");
+        Files.writeString(text, "loadNumber pickup dropoff\n1 (-50.1,80.0) (90.1,12.2)\n2 (-24.5,-19.2) (98.5,1.8)\n");
+
+        LoadTable heap = DataReader.readFileMapped(text.toString(), false);
+        LoadTable offHeap = DataReader.readFileMapped(text.toString(), true);
+        assertFalse(heap.isOffHeap());
+        assertTrue(offHeap.isOffHeap());
+        assertEquals(2, offHeap.size());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(heap.pickupX(i), offHeap.pickupX(i));
+            assertEquals(heap.pickupY(i), offHeap.pickupY(i));
+            assertEquals(heap.dropX(i), offHeap.dropX(i));
+            assertEquals(heap.dropY(i), offHeap.dropY(i));
+            assertEquals(heap.dropToDepot(i), offHeap.dropToDepot(i));
+        }
+        assertEquals(-24.5, offHeap.pickupX(1));
+    }
+}
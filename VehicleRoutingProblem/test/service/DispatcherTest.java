@@ -0,0 +1,56 @@
+package service;
+
+import objects.Driver;
+import objects.Load;
+import objects.LoadTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DispatcherTest {
+
+    @Test
+    void snapshotKeepsLoadNumbersOfLoadsArrivingAsCoordinates() {
+        Dispatcher dispatcher = new Dispatcher();
+        assertEquals(0, dispatcher.addLoad(10, 0, 20, 0));
+        assertEquals(0, dispatcher.addLoad(21, 0, 30, 0));
+        Dispatcher.Snapshot first = dispatcher.snapshot();
+        assertEquals(0, dispatcher.addLoad(31, 0, 40, 0));
+
+        List<Driver> drivers = dispatcher.snapshot().toDrivers();
+        assertEquals(1, drivers.size());
+        assertEquals(List.of(1, 2, 3), loadNumbers(drivers.get(0).getLoads()));
+        assertEquals(40.0, drivers.get(0).getWorkingTime(), 1e-9);
+        assertEquals(List.of(1, 2), loadNumbers(first.toDrivers().get(0).getLoads()));
+        assertEquals(List.of(1, 2), loadNumbers(first.getRoute(0)));
+    }
+
+    @Test
+    void snapshotKeepsLoadNumbersOfLoadsFromATable() {
+        LoadTable table = new LoadTable(new double[]{100, 10, 21}, new double[]{100, 0, 0},
+                new double[]{100, 20, 30}, new double[]{100, 0, 0});
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.addLoad(table.toLoad(1));
+        dispatcher.addLoad(table.toLoad(2));
+
+        List<Driver> drivers = dispatcher.snapshot().toDrivers();
+        assertEquals(1, drivers.size());
+        assertEquals(List.of(2, 3), loadNumbers(drivers.get(0).getLoads()));
+    }
+
+    @Test
+    void rejectsLoadsFromAnotherTable() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.addLoad(new LoadTable(new double[][][]{{{10, 0}, {20, 0}}}).toLoad(0));
+        Load other = new LoadTable(new double[][][]{{{21, 0}, {30, 0}}}).toLoad(0);
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.addLoad(other));
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.addLoad(21, 0, 30, 0));
+    }
+
+    private static List<Integer> loadNumbers(List<Load> loads) {
+        return loads.stream().map(Load::getLoadNumber).toList();
+    }
+}
@@ -0,0 +1,28 @@
+package service;
+
+import objects.Driver;
+import objects.Load;
+import objects.LoadTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SectorSolverTest {
+
+    @Test
+    void solvesOnlyTheLoadsOfPartOfATable() {
+        LoadTable table = new LoadTable(new double[]{10, -10, 0, 0}, new double[]{0, 0, 10, -10},
+                new double[]{20, -20, 0, 0}, new double[]{0, 0, 20, -20});
+        Solution part = new Solution(table, new int[]{1, 3});
+
+        List<Driver> drivers = new SectorSolver(4, 2).solve(part);
+        List<Integer> loadNumbers = drivers.stream()
+                .flatMap(driver -> driver.getLoads().stream())
+                .map(Load::getLoadNumber)
+                .sorted()
+                .toList();
+        assertEquals(List.of(2, 4), loadNumbers);
+    }
+}
@@ -0,0 +1,108 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolverServerTest {
+
+    @Test
+    @Timeout(30)
+    void warmsUpTheExactStrategyAndAnswersTooLargeRequestsWithAnError() throws IOException {
+        StringBuilder requests = new StringBuilder("loadNumber pickup dropoff\n");
+        for (int load = 1; load <= ExactSolver.MAX_LOADS + 1; load++)
+            requests.append(load).append(" (").append(load).append(".0,0.0) (").append(load).append(".5,0.0)\n");
+        requests.append(".\nloadNumber pickup dropoff\n1 (10.0,0.0) (20.0,0.0)\n.\n");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (SolverServer server = new SolverServer(SolverStrategy.forName("exact"), 2)) {
+            server.warmUp();
+            server.serve(new ByteArrayInputStream(requests.toString().getBytes(StandardCharsets.US_ASCII)), output);
+        }
+
+        String[] responses = output.toString(StandardCharsets.US_ASCII).split("(?m)^\\.\\n");
+        assertEquals(2, responses.length);
+        assertTrue(responses[0].startsWith("ERROR IllegalArgumentException: The exact solver handles at most"), responses[0]);
+        assertTrue(responses[1].startsWith("[1]\n"), responses[1]);
+    }
+
+    @Test
+    @Timeout(30)
+    void readsNoFurtherWhileASlowRequestHoldsBackTheResponses() throws Exception {
+        SolverStrategy greedy = SolverStrategy.forName("greedy");
+        AtomicInteger started = new AtomicInteger();
+        CountDownLatch slowMayFinish = new CountDownLatch(1);
+        SolverStrategy strategy = solution -> {
+            started.incrementAndGet();
+            if (solution.getLoadCount() == 2) {
+                try {
+                    slowMayFinish.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return greedy.solve(solution);
+        };
+        StringBuilder requests = new StringBuilder("loadNumber pickup dropoff\n1 (10.0,0.0) (20.0,0.0)\n2 (21.0,0.0) (30.0,0.0)\n.\n");
+        for (int r = 0; r < 5; r++)
+            requests.append("loadNumber pickup dropoff\n1 (10.0,0.0) (20.0,0.0)\n.\n");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (SolverServer server = new SolverServer(strategy, 2)) {
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve(new ByteArrayInputStream(requests.toString().getBytes(StandardCharsets.US_ASCII)), output);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            serving.start();
+            Thread.sleep(500);
+            // The slow request and one more are admitted; the second stays admitted until its response is written
+            assertEquals(2, started.get());
+            slowMayFinish.countDown();
+            serving.join();
+        }
+        assertEquals(6, started.get());
+        assertEquals(6, output.toString(StandardCharsets.US_ASCII).split("(?m)^\\.\\n").length);
+    }
+
+    @Test
+    @Timeout(30)
+    void keepsAnsweringInOrderAfterRequestsFailWithAnError() throws IOException {
+        SolverStrategy greedy = SolverStrategy.forName("greedy");
+        SolverStrategy failing = solution -> {
+            if (solution.getLoadCount() == 2)
+                throw new AssertionError("solver broke");
+            return greedy.solve(solution);
+        };
+        StringBuilder requests = new StringBuilder();
+        for (int r = 0; r < 6; r++) {
+            requests.append("loadNumber pickup dropoff\n1 (10.0,0.0) (20.0,0.0)\n");
+            if (r % 2 == 1)
+                requests.append("2 (21.0,0.0) (30.0,0.0)\n");
+            requests.append(".\n");
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (SolverServer server = new SolverServer(failing, 2)) {
+            server.serve(new ByteArrayInputStream(requests.toString().getBytes(StandardCharsets.US_ASCII)), output);
+        }
+
+        String[] responses = output.toString(StandardCharsets.US_ASCII).split("(?m)^\\.\\n");
+        assertEquals(6, responses.length);
+        for (int r = 0; r < 6; r++) {
+            if (r % 2 == 1)
+                assertEquals("ERROR AssertionError: solver broke\n", responses[r]);
+            else
+                assertTrue(responses[r].startsWith("[1]\n"), responses[r]);
+        }
+    }
+}